@@ -18,6 +18,20 @@ repositories {
 
 val libs: Configuration by configurations.creating
 
+// Developer tools (stand-in API server, benchmarks), not shipped with the plugin
+val tools: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[tools.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[tools.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+// Behaviour tests, driven by the stand-in API
+sourceSets.test {
+    compileClasspath += tools.output
+    runtimeClasspath += tools.output
+}
+
 // Configure Gradle IntelliJ Plugin
 // Read more: https://plugins.jetbrains.com/docs/intellij/tools-gradle-intellij-plugin.html
 intellij {
@@ -57,6 +71,38 @@ tasks {
         duplicatesStrategy = DuplicatesStrategy.EXCLUDE
         from(libs.map { if (it.isDirectory) it else zipTree(it) })
     }
+
+    // Standalone (IntelliJ-free) uploader for the offline activity cache
+    register<Jar>("cliJar") {
+        archiveBaseName.set("codealike-cli")
+        duplicatesStrategy = DuplicatesStrategy.EXCLUDE
+        manifest {
+            attributes("Main-Class" to "com.codealike.client.cli.CacheUploader")
+        }
+        from(sourceSets.main.get().output) {
+            exclude("com/codealike/client/intellij/**", "META-INF/plugin.xml")
+        }
+        from(configurations.runtimeClasspath.get().map { if (it.isDirectory) it else zipTree(it) })
+        exclude("META-INF/*.SF", "META-INF/*.DSA", "META-INF/*.RSA")
+    }
+
+    // Local stand-in of the Codealike API, e.g. gradle standInApi --args="--latency 200 --error-rate 0.1"
+    register<JavaExec>("standInApi") {
+        classpath = tools.runtimeClasspath
+        mainClass.set("com.codealike.client.tools.StandInApiServer")
+    }
+
+    // Plugin startup against the stand-in API, e.g. gradle startupBenchmark --args="--latency 100 --transport http2"
+    register<JavaExec>("startupBenchmark") {
+        classpath = tools.runtimeClasspath
+        mainClass.set("com.codealike.client.tools.StartupBenchmark")
+    }
+
+    // Concurrent activity uploads on both transports, e.g. gradle uploadBenchmark --args="--upload-bandwidth 32768"
+    register<JavaExec>("uploadBenchmark") {
+        classpath = tools.runtimeClasspath
+        mainClass.set("com.codealike.client.tools.UploadBenchmark")
+    }
 }
 
 dependencies {
@@ -83,4 +129,5 @@ dependencies {
     libs("joda-time:joda-time:2.12.2")
     implementation("nekohtml:nekohtml:1.9.6.2")
     configurations.implementation.get().extendsFrom(libs)
+    testImplementation("junit:junit:4.13.2")
 }
\ No newline at end of file
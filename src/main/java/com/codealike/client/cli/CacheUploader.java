@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.cli;
+
+import com.codealike.client.core.api.ApiClient;
+import com.codealike.client.core.internal.model.GlobalSettings;
+import com.codealike.client.core.internal.processing.ActivityInfoSplitter;
+import com.codealike.client.core.internal.serialization.CodealikeJson;
+import com.codealike.client.core.internal.tracking.ActivitiesRecorder.FlushResult;
+import com.codealike.client.core.internal.tracking.CacheReplayer;
+import com.codealike.client.core.internal.tracking.ReplayLease;
+import com.codealike.client.core.internal.tracking.ReplayLedger;
+import com.codealike.client.core.internal.utils.Configuration;
+import com.codealike.client.core.internal.utils.LocalIOExecutor;
+import org.joda.time.DateTimeZone;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless uploader for the offline activity cache. Sends every batch stored in
+ * ~/.codealike/cache-idea without an IDE running, e.g. from a cron job.
+ * <p>
+ * Usage: java -jar codealike-cli.jar [--threads N] [--api-url URL] [--token IDENTITY/TOKEN] [--base-path DIR] [--transport jersey|http2] [--max-payload BYTES]
+ * <p>
+ * Token, api url, transport and payload size default to the ones stored by the plugin in ~/.codealike/user.json.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class CacheUploader {
+    private static final int DEFAULT_THREADS = 4;
+    private static final String DEFAULT_API_URL = "https://codealike.com/api/v2";
+    // max time to wait for another instance to finish replaying (in milliseconds)
+    private static final long LEASE_WAIT_TIMEOUT = 60000;
+    private static final long LEASE_RETRY_INTERVAL = 1000;
+
+    private int threads = DEFAULT_THREADS;
+    private String apiUrl;
+    private String userToken;
+    private String httpTransport;
+    private int maxPayloadSize;
+    private File basePath = Configuration.getDefaultBasePath();
+
+    public static void main(String[] args) {
+        CacheUploader uploader = new CacheUploader();
+        try {
+            uploader.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        System.exit(uploader.run());
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: codealike-cli [--threads N] [--api-url URL] [--token IDENTITY/TOKEN] [--base-path DIR] [--transport jersey|http2] [--max-payload BYTES]");
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String argument = args[i];
+            if (argument.equals("--help") || argument.equals("-h")) {
+                printUsage();
+                System.exit(0);
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + argument);
+            }
+            String value = args[++i];
+            switch (argument) {
+                case "--threads":
+                    try {
+                        threads = Math.max(1, Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid number of threads: " + value);
+                    }
+                    break;
+                case "--api-url":
+                    apiUrl = value;
+                    break;
+                case "--token":
+                    userToken = value;
+                    break;
+                case "--transport":
+                    httpTransport = value;
+                    break;
+                case "--max-payload":
+                    try {
+                        maxPayloadSize = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid payload size: " + value);
+                    }
+                    break;
+                case "--base-path":
+                    basePath = new File(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + argument);
+            }
+        }
+    }
+
+    private int run() {
+        // same time zone the plugin uses to serialize activity
+        DateTimeZone.setDefault(DateTimeZone.UTC);
+
+        loadStoredSettings();
+        if (userToken == null || userToken.split("/").length != 2) {
+            System.err.println("No Codealike token found. Use --token IDENTITY/TOKEN or log in from the IDE first.");
+            return 2;
+        }
+        String[] split = userToken.split("/");
+
+        ApiClient.selectTransport(httpTransport);
+        ApiClient client;
+        try {
+            client = ApiClient.tryCreateNew(apiUrl, split[0], split[1]);
+        } catch (Exception e) {
+            System.err.println("Could not create API client: " + e.getMessage());
+            return 1;
+        }
+
+        ReplayLedger ledger = new ReplayLedger(new File(basePath, Configuration.REPLAY_LEDGER_FILE));
+        ReplayLease lease = new ReplayLease(new File(basePath, Configuration.REPLAY_LOCK_FILE));
+        File historyPath = new File(basePath, Configuration.HISTORY_FOLDER);
+        historyPath.mkdirs();
+        CacheReplayer replayer = new CacheReplayer(new File(basePath, Configuration.CACHE_FOLDER), historyPath, ledger, lease, maxPayloadSize);
+
+        // an IDE instance may be replaying the cache right now, wait for it to finish
+        long leaseDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LEASE_WAIT_TIMEOUT);
+        while (!replayer.beginReplay()) {
+            if (System.nanoTime() > leaseDeadline) {
+                System.err.println("The offline cache is being replayed by another Codealike instance. Try again later.");
+                return 3;
+            }
+            try {
+                Thread.sleep(LEASE_RETRY_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 3;
+            }
+        }
+
+        List<File> pending = replayer.getPendingFiles();
+        int total = pending.size();
+        System.out.println(String.format("Uploading %d cached batches using %d threads...", total, threads));
+
+        Map<FlushResult, AtomicInteger> results = new EnumMap<>(FlushResult.class);
+        for (FlushResult result : FlushResult.values()) {
+            results.put(result, new AtomicInteger());
+        }
+        AtomicInteger done = new AtomicInteger();
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (File fileEntry : pending) {
+            executor.execute(() -> {
+                FlushResult result = replayer.replay(fileEntry, client);
+                results.get(result).incrementAndGet();
+                System.out.println(String.format("[%d/%d] %s: %s", done.incrementAndGet(), total, fileEntry.getName(), result));
+            });
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // wait for ledger updates and moves to history
+        replayer.endReplay();
+        LocalIOExecutor.getInstance().drain(30, TimeUnit.SECONDS);
+        ledger.close();
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println(String.format("Done in %d ms: %d sent, %d rejected (moved to history as .error), %d left in cache.",
+                elapsed, results.get(FlushResult.Succeded).get(), results.get(FlushResult.Report).get(),
+                results.get(FlushResult.Offline).get() + results.get(FlushResult.Skip).get()));
+        System.out.println("Connections: " + client.getTransportMetrics());
+        ApiClient.closeTransport();
+
+        return results.get(FlushResult.Succeded).get() + results.get(FlushResult.Report).get() == total ? 0 : 1;
+    }
+
+    private void loadStoredSettings() {
+        File settingsFile = new File(basePath, Configuration.GLOBAL_SETTINGS_FILE);
+        if (settingsFile.exists()) {
+            try (FileInputStream stream = new FileInputStream(settingsFile)) {
+                GlobalSettings settings = CodealikeJson.getMapper().readValue(stream, GlobalSettings.class);
+                if (userToken == null) {
+                    userToken = settings.getUserToken();
+                }
+                if (apiUrl == null) {
+                    apiUrl = settings.getApiUrl();
+                }
+                if (httpTransport == null) {
+                    httpTransport = settings.getHttpTransport();
+                }
+                if (maxPayloadSize <= 0) {
+                    maxPayloadSize = settings.getMaxPayloadSize();
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read " + settingsFile + ": " + e.getMessage());
+            }
+        }
+        if (apiUrl == null) {
+            apiUrl = DEFAULT_API_URL;
+        }
+        if (maxPayloadSize <= 0) {
+            maxPayloadSize = ActivityInfoSplitter.DEFAULT_MAX_PAYLOAD_SIZE;
+        }
+    }
+}
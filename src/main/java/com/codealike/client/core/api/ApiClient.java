@@ -4,29 +4,37 @@
 package com.codealike.client.core.api;
 
 import com.codealike.client.core.internal.dto.*;
+import com.codealike.client.core.internal.serialization.CodealikeJson;
 import com.codealike.client.core.internal.startup.PluginContext;
+import com.codealike.client.core.internal.utils.Diagnostics;
+import com.codealike.client.core.internal.utils.LogManager;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
-import jakarta.ws.rs.ProcessingException;
-import jakarta.ws.rs.client.*;
-import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.Response;
-import org.glassfish.jersey.client.ClientProperties;
-
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
+
+import java.io.IOException;
 import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.cert.CertificateException;
-import java.security.cert.X509Certificate;
+import java.util.Base64;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Api class to communicate with Codealike server.
+ * <p>
+ * Clients are lightweight: every request goes through a single shared
+ * {@link ApiTransport}, with identity and token sent per request. Failed requests
+ * are retried following the client {@link RetryPolicy}, and every client shares a
+ * {@link CircuitBreaker} so an outage fails fast instead of waiting for timeouts.
  *
  * @author Daniel, pvmagacho
  * @version 1.6.0.0
@@ -37,11 +45,46 @@ public class ApiClient {
     private static final String X_EAUTH_CLIENT_HEADER = "X-Eauth-Client";
     private static final String X_EAUTH_TOKEN_HEADER = "X-Api-Token";
     public static final String X_EAUTH_IDENTITY_HEADER = "X-Api-Identity";
-    // Number of API retries
-    public static final int MAX_RETRIES = 5;
-    private final WebTarget apiTarget;
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    // Time responses of slow changing resources are fresh (in milliseconds)
+    private static final long PLUGIN_SETTINGS_TTL = 24 * 60 * 60 * 1000;
+    private static final long VERSION_TTL = 6 * 60 * 60 * 1000;
+    private static final long PROFILE_TTL = 60 * 60 * 1000;
+    private static final long USER_CONFIGURATION_TTL = 15 * 60 * 1000;
+    private static final long SOLUTION_CONTEXT_TTL = 24 * 60 * 60 * 1000;
+    private static final String PLUGIN_SETTINGS_URL = "https://codealike.com/api/v2/public/PluginsConfiguration";
+
+    // Available transports
+    public static final String JERSEY_TRANSPORT = "jersey";
+    public static final String HTTP2_TRANSPORT = "http2";
+
+    // Transport and circuit breaker shared by every client
+    private static ApiTransport _transport;
+    private static String _transportName = JERSEY_TRANSPORT;
+    private static CircuitBreaker _circuitBreaker;
+    private static ResponseCache _responseCache;
+    private static final SingleFlight _singleFlight = new SingleFlight();
+    private static final ConnectivityMonitor _connectivity = new ConnectivityMonitor();
+
+    static {
+        Diagnostics diagnostics = Diagnostics.getInstance();
+        diagnostics.register("Connectivity", _connectivity::describe);
+        diagnostics.register("API transport", ApiClient::describeTransport);
+        diagnostics.register("Circuit breaker", () -> getCircuitBreaker().toString());
+        diagnostics.register("Response cache", () -> getResponseCache().toString());
+        diagnostics.register("Coalesced requests", _singleFlight::toString);
+    }
+
+    private final ApiTransport transport;
+    private final String apiUrl;
     private String identity;
     private String token;
+    // Digest of the token, identifies the credentials of coalesced requests
+    private final String tokenDigest;
+    // Deadline of every request made by this client (in milliseconds), 0 if none
+    private long timeout;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
 
     /**
      * Create a new API client. Used to communicate with the Codealike remote server.
@@ -66,46 +109,114 @@ public class ApiClient {
     }
 
     /**
-     * API Client constructor. Used to communicate with the Codealike remote server.
+     * Create a new API client targeting the given API url. Does not require the plugin
+     * context, so it can be used outside the IDE.
      *
+     * @param apiUrl   the Codealike API url
+     * @param identity the user identity
+     * @param token    the user token
+     * @return the created APIClient instance
      * @throws KeyManagementException if any error with token occurs
      */
-    protected ApiClient() throws KeyManagementException {
-        ClientBuilder builder = ClientBuilder.newBuilder();
-        TrustManager[] certs = new TrustManager[]{new javax.net.ssl.X509TrustManager() {
-            @Override
-            public X509Certificate[] getAcceptedIssuers() {
-                return new X509Certificate[]{};
-            }
+    public static ApiClient tryCreateNew(String apiUrl, String identity, String token) throws KeyManagementException {
+        return new ApiClient(apiUrl, identity, token);
+    }
 
-            @Override
-            public void checkServerTrusted(X509Certificate[] chain,
-                                           String authType) throws CertificateException {
+    /**
+     * Get the transport shared by every API client. If it doesn't exist, one is created.
+     *
+     * @return the shared {@link ApiTransport} instance
+     * @throws KeyManagementException if the transport SSL context could not be initialized
+     */
+    public static synchronized ApiTransport getTransport() throws KeyManagementException {
+        if (_transport == null) {
+            if (HTTP2_TRANSPORT.equalsIgnoreCase(_transportName)) {
+                _transport = new HttpClientApiTransport();
+            } else {
+                _transport = new JerseyApiTransport();
             }
+        }
+        return _transport;
+    }
 
-            @Override
-            public void checkClientTrusted(X509Certificate[] chain,
-                                           String authType) throws CertificateException {
-            }
-        }};
+    /**
+     * Get the circuit breaker shared by every API client. If it doesn't exist, one is created.
+     *
+     * @return the shared {@link CircuitBreaker} instance
+     */
+    public static synchronized CircuitBreaker getCircuitBreaker() {
+        if (_circuitBreaker == null) {
+            _circuitBreaker = new CircuitBreaker();
+        }
+        return _circuitBreaker;
+    }
 
-        SSLContext sslContext = null;
-        try {
-            sslContext = SSLContext.getInstance("SSL");
-            sslContext.init(null, certs, new SecureRandom());
-        } catch (NoSuchAlgorithmException e1) {
-            e1.printStackTrace();
+    /**
+     * Get the response cache shared by every API client. If it doesn't exist, one is created.
+     *
+     * @return the shared {@link ResponseCache} instance
+     */
+    public static synchronized ResponseCache getResponseCache() {
+        if (_responseCache == null) {
+            _responseCache = new ResponseCache();
         }
+        return _responseCache;
+    }
 
-        builder.sslContext(sslContext).hostnameVerifier(HttpsURLConnection.getDefaultHostnameVerifier());
+    /**
+     * Get the coalescing of identical GET requests in flight, shared by every API client.
+     *
+     * @return the shared {@link SingleFlight} instance
+     */
+    public static SingleFlight getSingleFlight() {
+        return _singleFlight;
+    }
 
-        Client client = builder.build();
-        client.property(ClientProperties.CONNECT_TIMEOUT, 30000);
-        client.property(ClientProperties.READ_TIMEOUT, 5000);
+    /**
+     * Get the connectivity state shared by every API client.
+     *
+     * @return the shared {@link ConnectivityMonitor} instance
+     */
+    public static ConnectivityMonitor getConnectivity() {
+        return _connectivity;
+    }
 
-        apiTarget = client.target(PluginContext.getInstance().getConfiguration().getApiUrl());
-        this.identity = "";
-        this.token = "";
+    /**
+     * Select the transport used by API clients created from now on.
+     *
+     * @param transportName the transport name ({@link #JERSEY_TRANSPORT} or {@link #HTTP2_TRANSPORT})
+     */
+    public static synchronized void selectTransport(String transportName) {
+        String selected = HTTP2_TRANSPORT.equalsIgnoreCase(transportName) ? HTTP2_TRANSPORT : JERSEY_TRANSPORT;
+        if (!selected.equals(_transportName)) {
+            _transportName = selected;
+            closeTransport();
+        }
+    }
+
+    /**
+     * Close the shared transport. Called when the application shuts down.
+     */
+    public static synchronized void closeTransport() {
+        if (_transport != null) {
+            LogManager.INSTANCE.logInfo("API transport closed: " + _transport.getMetrics()
+                    + ". Response cache: " + getResponseCache() + ". Coalesced requests: " + _singleFlight);
+            _transport.close();
+            _transport = null;
+        }
+    }
+
+    private static synchronized String describeTransport() {
+        return _transport != null ? _transportName + ": " + _transport.getMetrics() : _transportName + ": not created";
+    }
+
+    /**
+     * API Client constructor. Used to communicate with the Codealike remote server.
+     *
+     * @throws KeyManagementException if any error with token occurs
+     */
+    protected ApiClient() throws KeyManagementException {
+        this(PluginContext.getInstance().getConfiguration().getApiUrl(), null, null);
     }
 
     /**
@@ -116,11 +227,69 @@ public class ApiClient {
      * @throws KeyManagementException if any error with token occurs
      */
     protected ApiClient(String identity, String token) throws KeyManagementException {
-        this();
+        this(PluginContext.getInstance().getConfiguration().getApiUrl(), identity, token);
+    }
+
+    /**
+     * API Client constructor.
+     *
+     * @param apiUrl   the Codealike API url
+     * @param identity the user identity
+     * @param token    the user token
+     * @throws KeyManagementException if any error with token occurs
+     */
+    protected ApiClient(String apiUrl, String identity, String token) throws KeyManagementException {
+        this(getTransport(), apiUrl, identity, token);
+    }
+
+    private ApiClient(ApiTransport transport, String apiUrl, String identity, String token) {
+        this.transport = transport;
+        this.apiUrl = apiUrl;
+        _connectivity.setProbeUrl(apiUrl);
+        this.identity = "";
+        this.token = "";
         if (identity != null && token != null) {
             this.identity = identity;
             this.token = token;
         }
+        this.tokenDigest = digest(this.token);
+    }
+
+    /**
+     * Get a client that sends the same credentials to the same server, with a deadline
+     * on every request. Requests past their deadline end with connection problems.
+     *
+     * @param timeout the request deadline in milliseconds
+     * @return the new APIClient instance
+     */
+    public ApiClient withTimeout(long timeout) {
+        ApiClient client = new ApiClient(this.transport, this.apiUrl, this.identity, this.token);
+        client.timeout = timeout;
+        client.retryPolicy = this.retryPolicy;
+        return client;
+    }
+
+    /**
+     * Get a client that sends the same credentials to the same server, retrying
+     * failed requests with the given policy.
+     *
+     * @param retryPolicy the retry policy to use
+     * @return the new APIClient instance
+     */
+    public ApiClient withRetryPolicy(RetryPolicy retryPolicy) {
+        ApiClient client = new ApiClient(this.transport, this.apiUrl, this.identity, this.token);
+        client.timeout = this.timeout;
+        client.retryPolicy = retryPolicy;
+        return client;
+    }
+
+    /**
+     * Get the metrics of the transport used by this client.
+     *
+     * @return the {@link TransportMetrics} instance
+     */
+    public TransportMetrics getTransportMetrics() {
+        return transport.getMetrics();
     }
 
     /**
@@ -129,28 +298,42 @@ public class ApiClient {
      * @return the {@link ApiResponse} instance with {@link PluginSettingsInfo} information
      */
     public static ApiResponse<PluginSettingsInfo> getPluginSettings() {
-        ObjectMapper mapper = new ObjectMapper();
-        ClientBuilder builder = ClientBuilder.newBuilder();
-        Client client = builder.build();
-        client.property(ClientProperties.CONNECT_TIMEOUT, 30000);
-        client.property(ClientProperties.READ_TIMEOUT, 5000);
+        ApiTransportResponse response;
+        try {
+            response = fetch(getTransport(), pluginSettingsRequest());
+        } catch (IOException | KeyManagementException e) {
+            return new ApiResponse<>(ApiResponse.Status.ConnectionProblems);
+        }
+        return toPluginSettings(response);
+    }
 
-        WebTarget pluginSettingsTarget = client.target("https://codealike.com/api/v2/public/PluginsConfiguration");
+    /**
+     * Get the plugin settings from the remote server without blocking.
+     *
+     * @return a future completed with the {@link ApiResponse} instance with {@link PluginSettingsInfo} information
+     */
+    public static CompletableFuture<ApiResponse<PluginSettingsInfo>> getPluginSettingsAsync() {
+        ApiTransport transport;
+        try {
+            transport = getTransport();
+        } catch (KeyManagementException e) {
+            return CompletableFuture.completedFuture(new ApiResponse<>(ApiResponse.Status.ConnectionProblems));
+        }
+        return fetchAsync(transport, pluginSettingsRequest()).handle((response, t) -> t != null
+                ? new ApiResponse<>(ApiResponse.Status.ConnectionProblems)
+                : toPluginSettings(response));
+    }
 
-        Invocation.Builder invocationBuilder = pluginSettingsTarget.request(
-                MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
+    private static ApiRequest pluginSettingsRequest() {
+        return ApiRequest.get(PLUGIN_SETTINGS_URL).cache(PLUGIN_SETTINGS_TTL, true);
+    }
 
+    private static ApiResponse<PluginSettingsInfo> toPluginSettings(ApiTransportResponse response) {
+        ObjectMapper mapper = new ObjectMapper();
         try {
-            Response response;
-            try {
-                response = invocationBuilder.get();
-            } catch (Exception e) {
-                return new ApiResponse<>(ApiResponse.Status.ConnectionProblems);
-            }
-
-            if (response.getStatusInfo().getStatusCode() == Response.Status.OK.getStatusCode()) {
+            if (response.getStatus() == HTTP_OK) {
                 // process response to get a valid json string representation
-                String serializedObject = response.readEntity(String.class);
+                String serializedObject = response.getBody();
                 String normalizedObject = serializedObject.substring(1, serializedObject.length() - 1).replace("\\", "");
 
                 // parse the json object to get a valid plugin settings object
@@ -158,15 +341,13 @@ public class ApiClient {
 
                 if (pluginSettingsInfo != null) {
                     return new ApiResponse<>(
-                            response.getStatus(), response.getStatusInfo()
-                            .getReasonPhrase(), pluginSettingsInfo);
+                            response.getStatus(), response.getReasonPhrase(), pluginSettingsInfo);
                 } else {
                     return new ApiResponse<>(ApiResponse.Status.ClientError,
                             "Problem parsing data from the server.");
                 }
             } else {
-                return new ApiResponse<>(response.getStatus(), response
-                        .getStatusInfo().getReasonPhrase());
+                return new ApiResponse<>(response.getStatus(), response.getReasonPhrase());
             }
         } catch (Exception e) {
             return new ApiResponse<>(ApiResponse.Status.ClientError,
@@ -181,15 +362,11 @@ public class ApiClient {
      * @return the {@link ApiResponse} instance
      */
     public ApiResponse<Void> health() {
+        ApiRequest request = ApiRequest.get(apiUrl).path("health");
         try {
-            WebTarget target = apiTarget.path("health");
-
-            Invocation.Builder invocationBuilder = target
-                    .request(MediaType.APPLICATION_JSON);
-            Response response = invocationBuilder.get();
-            return new ApiResponse<>(response.getStatus(), response
-                    .getStatusInfo().getReasonPhrase());
-        } catch (ProcessingException e) {
+            ApiTransportResponse response = transport.execute(request);
+            return new ApiResponse<>(response.getStatus(), response.getReasonPhrase());
+        } catch (IOException e) {
             if (e.getCause() != null
                     && e.getCause() instanceof ConnectException) {
                 return new ApiResponse<>(ApiResponse.Status.ConnectionProblems);
@@ -207,28 +384,23 @@ public class ApiClient {
      */
     public ApiResponse<Void> logHealth(HealthInfo healthInfo) {
         try {
-            WebTarget target = apiTarget.path("health");
-
-            ObjectWriter writer = PluginContext.getInstance().getJsonWriter();
-            String healthInfoLog = writer.writeValueAsString(healthInfo);
-
-            Invocation.Builder invocationBuilder = target.request().accept(
-                    MediaType.APPLICATION_JSON);
-            addHeaders(invocationBuilder);
+            return doSend(logHealthRequest(healthInfo), Void.class);
+        } catch (JsonProcessingException e) {
+            return parsingProblem(e);
+        }
+    }
 
-            Response response;
-            try {
-                response = invocationBuilder.put(Entity.entity(healthInfoLog,
-                        MediaType.APPLICATION_JSON));
-            } catch (Exception e) {
-                return new ApiResponse<>(ApiResponse.Status.ConnectionProblems);
-            }
-            return new ApiResponse<>(response.getStatus(), response
-                    .getStatusInfo().getReasonPhrase());
+    /**
+     * Log the plugin health information to the remote server without blocking.
+     *
+     * @param healthInfo the health information object to update
+     * @return a future completed with the {@link ApiResponse} instance
+     */
+    public CompletableFuture<ApiResponse<Void>> logHealthAsync(HealthInfo healthInfo) {
+        try {
+            return doSendAsync(logHealthRequest(healthInfo), Void.class);
         } catch (JsonProcessingException e) {
-            return new ApiResponse<>(ApiResponse.Status.ClientError,
-                    String.format("Problem parsing data from the server. %s",
-                            e.getMessage()));
+            return CompletableFuture.completedFuture(parsingProblem(e));
         }
     }
 
@@ -238,8 +410,16 @@ public class ApiClient {
      * @return the {@link ApiResponse} instance with {@link Version} information
      */
     public ApiResponse<Version> version() {
-        WebTarget target = apiTarget.path("version").queryParam("client", "intellij");
-        return doGet(target, Version.class);
+        return doSend(versionRequest(), Version.class);
+    }
+
+    /**
+     * Get version for intellij plugin without blocking.
+     *
+     * @return a future completed with the {@link ApiResponse} instance with {@link Version} information
+     */
+    public CompletableFuture<ApiResponse<Version>> versionAsync() {
+        return doSendAsync(versionRequest(), Version.class);
     }
 
     /**
@@ -249,8 +429,17 @@ public class ApiClient {
      * @return the {@link ApiResponse} instance with {@link SolutionContextInfo} information
      */
     public ApiResponse<SolutionContextInfo> getSolutionContext(UUID projectId) {
-        WebTarget target = apiTarget.path("solution").path(projectId.toString());
-        return doGet(target, SolutionContextInfo.class);
+        return doSend(solutionContextRequest(projectId), SolutionContextInfo.class);
+    }
+
+    /**
+     * Get solution context information without blocking.
+     *
+     * @param projectId the current project id being tracker
+     * @return a future completed with the {@link ApiResponse} instance with {@link SolutionContextInfo} information
+     */
+    public CompletableFuture<ApiResponse<SolutionContextInfo>> getSolutionContextAsync(UUID projectId) {
+        return doSendAsync(solutionContextRequest(projectId), SolutionContextInfo.class);
     }
 
     /**
@@ -260,8 +449,17 @@ public class ApiClient {
      * @return the {@link ApiResponse} instance with {@link ProfileInfo} information
      */
     public ApiResponse<ProfileInfo> getProfile(String username) {
-        WebTarget target = apiTarget.path("account").path(username).path("profile");
-        return doGet(target, ProfileInfo.class);
+        return doSend(profileRequest(username), ProfileInfo.class);
+    }
+
+    /**
+     * Get project information without blocking.
+     *
+     * @param username the profile username
+     * @return a future completed with the {@link ApiResponse} instance with {@link ProfileInfo} information
+     */
+    public CompletableFuture<ApiResponse<ProfileInfo>> getProfileAsync(String username) {
+        return doSendAsync(profileRequest(username), ProfileInfo.class);
     }
 
     /**
@@ -271,8 +469,17 @@ public class ApiClient {
      * @return the {@link ApiResponse} instance with {@link UserConfigurationInfo} information
      */
     public ApiResponse<UserConfigurationInfo> getUserConfiguration(String username) {
-        WebTarget target = apiTarget.path("account").path(username).path("config");
-        return doGet(target, UserConfigurationInfo.class);
+        return doSend(userConfigurationRequest(username), UserConfigurationInfo.class);
+    }
+
+    /**
+     * Get user configuration information without blocking.
+     *
+     * @param username the profile username
+     * @return a future completed with the {@link ApiResponse} instance with {@link UserConfigurationInfo} information
+     */
+    public CompletableFuture<ApiResponse<UserConfigurationInfo>> getUserConfigurationAsync(String username) {
+        return doSendAsync(userConfigurationRequest(username), UserConfigurationInfo.class);
     }
 
     /**
@@ -284,29 +491,24 @@ public class ApiClient {
      */
     public ApiResponse<Void> registerProjectContext(UUID projectId, String name) {
         try {
-            SolutionContextInfo solutionContext = new SolutionContextInfo(
-                    projectId, name);
-            WebTarget target = apiTarget.path("solution");
-
-            ObjectWriter writer = PluginContext.getInstance().getJsonWriter();
-            String solutionAsJson = writer.writeValueAsString(solutionContext);
-            Invocation.Builder invocationBuilder = target.request().accept(
-                    MediaType.APPLICATION_JSON);
-            addHeaders(invocationBuilder);
+            return doSend(registerProjectContextRequest(projectId, name), Void.class);
+        } catch (JsonProcessingException e) {
+            return parsingProblem(e);
+        }
+    }
 
-            Response response;
-            try {
-                response = invocationBuilder.post(Entity.entity(solutionAsJson,
-                        MediaType.APPLICATION_JSON));
-            } catch (Exception e) {
-                return new ApiResponse<>(ApiResponse.Status.ConnectionProblems);
-            }
-            return new ApiResponse<>(response.getStatus(), response
-                    .getStatusInfo().getReasonPhrase());
+    /**
+     * Register the project being tracked with the remote server without blocking.
+     *
+     * @param projectId the project identifier to track
+     * @param name      the project name
+     * @return a future completed with the {@link ApiResponse} instance
+     */
+    public CompletableFuture<ApiResponse<Void>> registerProjectContextAsync(UUID projectId, String name) {
+        try {
+            return doSendAsync(registerProjectContextRequest(projectId, name), Void.class);
         } catch (JsonProcessingException e) {
-            return new ApiResponse<>(ApiResponse.Status.ClientError,
-                    String.format("Problem parsing data from the server. %s",
-                            e.getMessage()));
+            return CompletableFuture.completedFuture(parsingProblem(e));
         }
     }
 
@@ -318,27 +520,23 @@ public class ApiClient {
      */
     public ApiResponse<Void> postActivityInfo(ActivityInfo info) {
         try {
-            WebTarget target = apiTarget.path("activity");
-
-            ObjectWriter writer = PluginContext.getInstance().getJsonWriter();
-            String activityInfoAsJson = writer.writeValueAsString(info);
-            Invocation.Builder invocationBuilder = target.request().accept(
-                    MediaType.APPLICATION_JSON);
-            addHeaders(invocationBuilder);
+            return doSend(postActivityInfoRequest(info), Void.class);
+        } catch (JsonProcessingException e) {
+            return parsingProblem(e);
+        }
+    }
 
-            Response response;
-            try {
-                response = invocationBuilder.post(Entity.entity(
-                        activityInfoAsJson, MediaType.APPLICATION_JSON));
-            } catch (Exception e) {
-                return new ApiResponse<>(ApiResponse.Status.ConnectionProblems);
-            }
-            return new ApiResponse<>(response.getStatus(), response
-                    .getStatusInfo().getReasonPhrase());
+    /**
+     * Post project activity information without blocking.
+     *
+     * @param info the activity information object
+     * @return a future completed with the {@link ApiResponse} instance
+     */
+    public CompletableFuture<ApiResponse<Void>> postActivityInfoAsync(ActivityInfo info) {
+        try {
+            return doSendAsync(postActivityInfoRequest(info), Void.class);
         } catch (JsonProcessingException e) {
-            return new ApiResponse<>(ApiResponse.Status.ClientError,
-                    String.format("Problem parsing data from the server. %s",
-                            e.getMessage()));
+            return CompletableFuture.completedFuture(parsingProblem(e));
         }
     }
 
@@ -348,73 +546,385 @@ public class ApiClient {
      * @return the {@link ApiResponse} instance
      */
     public ApiResponse<Void> tokenAuthenticate() {
-        WebTarget target = apiTarget.path("account").path(this.identity)
+        return doSend(tokenAuthenticateRequest(), Void.class);
+    }
+
+    /**
+     * Do an account authentication using the Codealike token without blocking.
+     *
+     * @return a future completed with the {@link ApiResponse} instance
+     */
+    public CompletableFuture<ApiResponse<Void>> tokenAuthenticateAsync() {
+        return doSendAsync(tokenAuthenticateRequest(), Void.class);
+    }
+
+    private ApiRequest logHealthRequest(HealthInfo healthInfo) throws JsonProcessingException {
+        ObjectWriter writer = CodealikeJson.getWriter();
+        String healthInfoLog = writer.writeValueAsString(healthInfo);
+        return ApiRequest.put(apiUrl, healthInfoLog).path("health");
+    }
+
+    private ApiRequest versionRequest() {
+        return ApiRequest.get(apiUrl).path("version").queryParam("client", "intellij")
+                .cache(VERSION_TTL, true);
+    }
+
+    private ApiRequest solutionContextRequest(UUID projectId) {
+        return ApiRequest.get(apiUrl).path("solution").path(projectId.toString())
+                .cache(SOLUTION_CONTEXT_TTL, false);
+    }
+
+    private ApiRequest profileRequest(String username) {
+        return ApiRequest.get(apiUrl).path("account").path(username).path("profile")
+                .cache(PROFILE_TTL, true);
+    }
+
+    private ApiRequest userConfigurationRequest(String username) {
+        return ApiRequest.get(apiUrl).path("account").path(username).path("config")
+                .cache(USER_CONFIGURATION_TTL, true);
+    }
+
+    private ApiRequest registerProjectContextRequest(UUID projectId, String name) throws JsonProcessingException {
+        SolutionContextInfo solutionContext = new SolutionContextInfo(
+                projectId, name);
+
+        ObjectWriter writer = CodealikeJson.getWriter();
+        String solutionAsJson = writer.writeValueAsString(solutionContext);
+        return ApiRequest.post(apiUrl, solutionAsJson).path("solution");
+    }
+
+    private ApiRequest postActivityInfoRequest(ActivityInfo info) throws JsonProcessingException {
+        ObjectWriter writer = CodealikeJson.getWriter();
+        String activityInfoAsJson = writer.writeValueAsString(info);
+        return ApiRequest.post(apiUrl, activityInfoAsJson).path("activity");
+    }
+
+    private ApiRequest tokenAuthenticateRequest() {
+        return ApiRequest.get(apiUrl).path("account").path(this.identity)
                 .path("authorized");
-        Invocation.Builder invocationBuilder = target.request(
-                MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
+    }
 
-        addHeaders(invocationBuilder);
+    /**
+     * Private method to add headers and deadline to request.
+     */
+    private ApiRequest prepare(ApiRequest request) {
+        return request.header(X_EAUTH_IDENTITY_HEADER, this.identity)
+                .header(X_EAUTH_TOKEN_HEADER, this.token)
+                .header(X_EAUTH_CLIENT_HEADER, "intellij")
+                .timeout(this.timeout);
+    }
 
-        Response response;
+    /**
+     * Private method to do an API call. Identical GET calls in flight share
+     * a single request and parsed response.
+     */
+    private <T> ApiResponse<T> doSend(ApiRequest request, Class<T> type) {
+        ApiRequest prepared = prepare(request);
+        if (!ApiRequest.GET.equals(prepared.getMethod())) {
+            return doSendWithRetries(prepared, type);
+        }
         try {
-            response = invocationBuilder.get();
-        } catch (Exception e) {
+            return _singleFlight.execute(flightKey(prepared), timeout, () -> doSendWithRetries(prepared, type));
+        } catch (CancellationException | CompletionException e) {
+            // shared with an asynchronous call that was cancelled,
+            // or not answered before the deadline of this client
             return new ApiResponse<>(ApiResponse.Status.ConnectionProblems);
         }
-        return new ApiResponse<>(response.getStatus(), response.getStatusInfo()
-                .getReasonPhrase());
     }
 
     /**
-     * Private method to add headers to request.
+     * Private method to do an API call, retrying retryable failures.
      */
-    private void addHeaders(Invocation.Builder invocationBuilder) {
-        invocationBuilder.header(X_EAUTH_IDENTITY_HEADER, this.identity);
-        invocationBuilder.header(X_EAUTH_TOKEN_HEADER, this.token);
-        invocationBuilder.header(X_EAUTH_CLIENT_HEADER, "intellij");
+    private <T> ApiResponse<T> doSendWithRetries(ApiRequest prepared, Class<T> type) {
+        boolean idempotent = ApiRequest.GET.equals(prepared.getMethod());
+        int attempt = 1;
+        while (true) {
+            ApiResponse<T> response = sendOnce(prepared, type);
+            // no point in retrying once the server is known to be unreachable
+            // or while the circuit is open, the answer would be the same
+            if (!retryPolicy.shouldRetry(attempt, response, idempotent) || _connectivity.isOffline()
+                    || getCircuitBreaker().isOpen()) {
+                return response;
+            }
+            try {
+                Thread.sleep(retryPolicy.getDelay(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return response;
+            }
+            attempt++;
+        }
     }
 
     /**
-     * Private method to do an API GET.
+     * Private method to do a single attempt of an API call. Cacheable requests are
+     * answered from the response cache when possible.
      */
-    private <T> ApiResponse<T> doGet(WebTarget target, Class<T> type) {
-        Invocation.Builder invocationBuilder = target.request(
-                MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
-        addHeaders(invocationBuilder);
+    private <T> ApiResponse<T> sendOnce(ApiRequest request, Class<T> type) {
+        ResponseCache cache = getResponseCache();
+        ApiTransportResponse cached = cache.lookup(request);
+        if (cached != null) {
+            revalidate(transport, request);
+            return toApiResponse(cached, type);
+        }
+        if (!getCircuitBreaker().allowRequest()) {
+            return fallback(request, type, circuitOpen());
+        }
+        if (_connectivity.isOffline()) {
+            _connectivity.recordShortCircuit();
+            return fallback(request, type, offline());
+        }
 
+        ApiResponse<T> response;
+        long start = System.nanoTime();
         try {
-            Response response;
-            try {
-                response = invocationBuilder.get();
-            } catch (Exception e) {
-                return new ApiResponse<>(ApiResponse.Status.ConnectionProblems);
+            response = toApiResponse(cache.update(request, transport.execute(cache.conditional(request))), type);
+        } catch (Exception e) {
+            response = connectionProblems(e);
+        }
+        getCircuitBreaker().record(response.getStatus());
+        _connectivity.record(response.getStatus(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return RetryPolicy.isRetryable(response.getStatus()) ? fallback(request, type, response) : response;
+    }
+
+    /**
+     * Private method to do an API call without blocking. Identical GET calls in
+     * flight share a single request and parsed response.
+     */
+    private <T> CompletableFuture<ApiResponse<T>> doSendAsync(ApiRequest request, Class<T> type) {
+        ApiRequest prepared = prepare(request);
+        if (!ApiRequest.GET.equals(prepared.getMethod())) {
+            return doSendAsyncWithRetries(prepared, type);
+        }
+        return _singleFlight.executeAsync(flightKey(prepared), () -> doSendAsyncWithRetries(prepared, type));
+    }
+
+    /**
+     * Private method to do an API call without blocking, retrying retryable failures.
+     * Cancelling the returned future cancels the attempt in progress, the client
+     * deadline (if any) covers every attempt.
+     */
+    private <T> CompletableFuture<ApiResponse<T>> doSendAsyncWithRetries(ApiRequest prepared, Class<T> type) {
+        CompletableFuture<ApiResponse<T>> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> current = new AtomicReference<>();
+        if (timeout > 0) {
+            result.completeOnTimeout(new ApiResponse<>(ApiResponse.Status.ConnectionProblems), timeout, TimeUnit.MILLISECONDS);
+        }
+        result.whenComplete((response, t) -> {
+            CompletableFuture<?> attempt = current.get();
+            if (attempt != null) {
+                attempt.cancel(true);
             }
+        });
+        sendAsync(prepared, type, 1, result, current);
+        return result;
+    }
 
-            if (response.getStatusInfo().getStatusCode() == Response.Status.OK
-                    .getStatusCode()) {
-                String solutionContextInfoSerialized = response
-                        .readEntity(String.class);
-                ObjectMapper mapper = PluginContext.getInstance()
-                        .getJsonMapper();
-                T contextInfo = mapper.readValue(
-                        solutionContextInfoSerialized,
-                        type);
-                if (contextInfo != null) {
-                    return new ApiResponse<>(
-                            response.getStatus(), response.getStatusInfo()
-                            .getReasonPhrase(), contextInfo);
-                } else {
-                    return new ApiResponse<>(ApiResponse.Status.ClientError,
-                            "Problem parsing data from the server.");
-                }
+    private <T> void sendAsync(ApiRequest request, Class<T> type, int attempt,
+                               CompletableFuture<ApiResponse<T>> result, AtomicReference<CompletableFuture<?>> current) {
+        if (result.isDone()) {
+            return;
+        }
+        ResponseCache cache = getResponseCache();
+        ApiTransportResponse cached = cache.lookup(request);
+        if (cached != null) {
+            revalidate(transport, request);
+            result.complete(toApiResponse(cached, type));
+            return;
+        }
+        if (!getCircuitBreaker().allowRequest()) {
+            result.complete(fallback(request, type, circuitOpen()));
+            return;
+        }
+        if (_connectivity.isOffline()) {
+            _connectivity.recordShortCircuit();
+            result.complete(fallback(request, type, offline()));
+            return;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<ApiTransportResponse> sent = transport.executeAsync(cache.conditional(request));
+        current.set(sent);
+        sent.whenComplete((transportResponse, t) -> {
+            ApiResponse<T> response = t != null ? connectionProblems(t) : toApiResponse(cache.update(request, transportResponse), type);
+            getCircuitBreaker().record(response.getStatus());
+            if (!(t instanceof CancellationException)) {
+                _connectivity.record(response.getStatus(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            if (RetryPolicy.isRetryable(response.getStatus())) {
+                response = fallback(request, type, response);
+            }
+            if (!result.isDone() && !_connectivity.isOffline() && !getCircuitBreaker().isOpen()
+                    && retryPolicy.shouldRetry(attempt, response, ApiRequest.GET.equals(request.getMethod()))) {
+                CompletableFuture.delayedExecutor(retryPolicy.getDelay(attempt), TimeUnit.MILLISECONDS)
+                        .execute(() -> sendAsync(request, type, attempt + 1, result, current));
             } else {
-                return new ApiResponse<>(response.getStatus(), response
-                        .getStatusInfo().getReasonPhrase());
+                result.complete(response);
+            }
+        });
+        // result may have been completed (or cancelled) while the attempt was being started
+        if (result.isDone()) {
+            sent.cancel(true);
+        }
+    }
+
+    /**
+     * Private method to get a response through the response cache, without
+     * retries nor circuit breaker.
+     */
+    private static ApiTransportResponse fetch(ApiTransport transport, ApiRequest request) throws IOException {
+        ResponseCache cache = getResponseCache();
+        ApiTransportResponse cached = cache.lookup(request);
+        if (cached != null) {
+            revalidate(transport, request);
+            return cached;
+        }
+        if (_connectivity.isOffline()) {
+            _connectivity.recordShortCircuit();
+            cached = cache.fallback(request);
+            if (cached != null) {
+                return cached;
+            }
+            throw new ConnectException("Codealike API is offline.");
+        }
+        try {
+            return cache.update(request, transport.execute(cache.conditional(request)));
+        } catch (IOException e) {
+            cached = cache.fallback(request);
+            if (cached != null) {
+                return cached;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Private method to get a response through the response cache without blocking,
+     * without retries nor circuit breaker.
+     */
+    private static CompletableFuture<ApiTransportResponse> fetchAsync(ApiTransport transport, ApiRequest request) {
+        ResponseCache cache = getResponseCache();
+        ApiTransportResponse cached = cache.lookup(request);
+        if (cached != null) {
+            revalidate(transport, request);
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (_connectivity.isOffline()) {
+            _connectivity.recordShortCircuit();
+            cached = cache.fallback(request);
+            return cached != null ? CompletableFuture.completedFuture(cached)
+                    : CompletableFuture.failedFuture(new ConnectException("Codealike API is offline."));
+        }
+        return transport.executeAsync(cache.conditional(request)).handle((response, t) -> {
+            if (t == null) {
+                return cache.update(request, response);
+            }
+            ApiTransportResponse fallback = cache.fallback(request);
+            if (fallback != null) {
+                return fallback;
+            }
+            throw t instanceof CompletionException ? (CompletionException) t : new CompletionException(t);
+        });
+    }
+
+    /**
+     * Private method to refresh an expired cached response in background.
+     */
+    private static void revalidate(ApiTransport transport, ApiRequest request) {
+        ResponseCache cache = getResponseCache();
+        if (!cache.startRevalidation(request)) {
+            return;
+        }
+        if (!getCircuitBreaker().allowRequest() || _connectivity.isOffline()) {
+            cache.endRevalidation(request);
+            return;
+        }
+        transport.executeAsync(cache.conditional(request)).whenComplete((response, t) -> {
+            if (t != null) {
+                cache.endRevalidation(request);
+                getCircuitBreaker().record(ApiResponse.Status.ConnectionProblems);
+            } else {
+                cache.update(request, response);
+                getCircuitBreaker().record(response.getStatus() == HTTP_NOT_MODIFIED ? ApiResponse.Status.Ok
+                        : ApiResponse.Status.fromStatusCode(response.getStatus()));
+            }
+        });
+    }
+
+    /**
+     * Private method to answer a failed request from the response cache, if allowed.
+     */
+    private static <T> ApiResponse<T> fallback(ApiRequest request, Class<T> type, ApiResponse<T> failure) {
+        ApiTransportResponse cached = getResponseCache().fallback(request);
+        return cached != null ? toApiResponse(cached, type) : failure;
+    }
+
+    /*
+     *  flightKey:
+     *  Requests are only shared by clients sending the same credentials
+     *  with the same deadline.
+     */
+    private String flightKey(ApiRequest request) {
+        return String.format("%s %s %d %s", identity, tokenDigest, request.getTimeout(), request);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> ApiResponse<T> circuitOpen() {
+        return new ApiResponse<>(ApiResponse.Status.ConnectionProblems, "Server unreachable, circuit is open.", false);
+    }
+
+    private static <T> ApiResponse<T> offline() {
+        return new ApiResponse<>(ApiResponse.Status.ConnectionProblems, "Server unreachable, working offline.", false);
+    }
+
+    private static <T> ApiResponse<T> connectionProblems(Throwable t) {
+        // the request did not leave the client if no connection could be made
+        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        boolean sent = true;
+        for (Throwable e = cause; e != null; e = e.getCause()) {
+            if (e instanceof ConnectException || e instanceof UnknownHostException || e instanceof NoRouteToHostException) {
+                sent = false;
+                break;
+            }
+        }
+        return new ApiResponse<>(ApiResponse.Status.ConnectionProblems, cause.getMessage(), sent);
+    }
+
+    /**
+     * Private method to parse the response object, if any.
+     */
+    private static <T> ApiResponse<T> toApiResponse(ApiTransportResponse response, Class<T> type) {
+        if (type == Void.class || response.getStatus() != HTTP_OK) {
+            return new ApiResponse<>(response.getStatus(), response.getReasonPhrase());
+        }
+
+        try {
+            ObjectMapper mapper = CodealikeJson.getMapper();
+            T contextInfo = mapper.readValue(response.getBody(), type);
+            if (contextInfo != null) {
+                return new ApiResponse<>(
+                        response.getStatus(), response.getReasonPhrase(), contextInfo);
+            } else {
+                return new ApiResponse<>(ApiResponse.Status.ClientError,
+                        "Problem parsing data from the server.");
             }
         } catch (Exception e) {
-            return new ApiResponse<>(ApiResponse.Status.ClientError,
-                    String.format("Problem parsing data from the server. %s",
-                            e.getMessage()));
+            return parsingProblem(e);
         }
     }
+
+    private static <T> ApiResponse<T> parsingProblem(Exception e) {
+        return new ApiResponse<>(ApiResponse.Status.ClientError,
+                String.format("Problem parsing data from the server. %s",
+                        e.getMessage()));
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Codealike API request. Holds everything needed to execute a call (including the
+ * user credentials), so a single {@link ApiTransport} can serve every user and thread.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ApiRequest {
+    public static final String GET = "GET";
+    public static final String POST = "POST";
+    public static final String PUT = "PUT";
+
+    private final String method;
+    private final StringBuilder url;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private boolean hasQuery;
+    private String body;
+    private long timeout;
+    private long cacheTtl;
+    private boolean staleWhileRevalidate;
+
+    private ApiRequest(String method, String baseUrl) {
+        this.method = method;
+        this.url = new StringBuilder(baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl);
+    }
+
+    public static ApiRequest get(String baseUrl) {
+        return new ApiRequest(GET, baseUrl);
+    }
+
+    public static ApiRequest post(String baseUrl, String body) {
+        return new ApiRequest(POST, baseUrl).body(body);
+    }
+
+    public static ApiRequest put(String baseUrl, String body) {
+        return new ApiRequest(PUT, baseUrl).body(body);
+    }
+
+    /**
+     * Append an encoded path segment to the request url.
+     *
+     * @param segment the path segment
+     * @return this request
+     */
+    public ApiRequest path(String segment) {
+        url.append('/').append(encode(segment));
+        return this;
+    }
+
+    /**
+     * Append an encoded query parameter to the request url.
+     *
+     * @param name  the parameter name
+     * @param value the parameter value
+     * @return this request
+     */
+    public ApiRequest queryParam(String name, String value) {
+        url.append(hasQuery ? '&' : '?').append(encode(name)).append('=').append(encode(value));
+        hasQuery = true;
+        return this;
+    }
+
+    public ApiRequest header(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Set the request deadline. Once it elapses the request is cancelled.
+     *
+     * @param timeout the deadline in milliseconds, 0 to use the transport timeouts
+     * @return this request
+     */
+    public ApiRequest timeout(long timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Allow the response to be served from the {@link ResponseCache}.
+     *
+     * @param ttl                  the time the response is fresh (in milliseconds)
+     * @param staleWhileRevalidate true to answer from an expired response while it is refreshed
+     * @return this request
+     */
+    public ApiRequest cache(long ttl, boolean staleWhileRevalidate) {
+        this.cacheTtl = ttl;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        return this;
+    }
+
+    private ApiRequest body(String body) {
+        this.body = body;
+        return this;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url.toString();
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public long getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public boolean isStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + url;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
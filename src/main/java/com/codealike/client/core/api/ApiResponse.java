@@ -17,6 +17,8 @@ public class ApiResponse<T> {
     private String message;
     // The response HTTP object (in JSON format)
     private T object;
+    // False if the request never reached the server
+    private boolean requestSent = true;
 
     /**
      * API response constructor.
@@ -38,6 +40,19 @@ public class ApiResponse<T> {
         this.message = message;
     }
 
+    /**
+     * API response constructor.
+     *
+     * @param status      the API status object
+     * @param message     the API message
+     * @param requestSent false if the request never reached the server
+     */
+    public ApiResponse(Status status, String message, boolean requestSent) {
+        this.status = status;
+        this.message = message;
+        this.requestSent = requestSent;
+    }
+
     /**
      * API response constructor.
      *
@@ -107,6 +122,16 @@ public class ApiResponse<T> {
         return this.status == Status.InternalServerError || this.status == Status.ClientError;
     }
 
+    /**
+     * Check if the request reached the server. Requests that did not can always be
+     * sent again, even if they are not idempotent.
+     *
+     * @return false if the request never reached the server, true otherwise
+     */
+    public boolean isRequestSent() {
+        return requestSent;
+    }
+
     public Status getStatus() {
         return this.status;
     }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP transport used by {@link ApiClient}. Implementations are long-lived and thread
+ * safe: a single instance is shared by every API client in the process, so connections
+ * and TLS sessions are reused between calls.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public interface ApiTransport {
+
+    /**
+     * Execute a request.
+     *
+     * @param request the request to execute
+     * @return the response, with its body fully read
+     * @throws IOException if the server could not be reached
+     */
+    ApiTransportResponse execute(ApiRequest request) throws IOException;
+
+    /**
+     * Execute a request without blocking the calling thread. Cancelling the returned
+     * future aborts the request, and so does the request deadline, if any.
+     *
+     * @param request the request to execute
+     * @return a future completed with the response, or with the connection error
+     */
+    CompletableFuture<ApiTransportResponse> executeAsync(ApiRequest request);
+
+    /**
+     * Get the transport metrics.
+     *
+     * @return the {@link TransportMetrics} instance
+     */
+    TransportMetrics getMetrics();
+
+    /**
+     * Release every resource held by the transport.
+     */
+    void close();
+}
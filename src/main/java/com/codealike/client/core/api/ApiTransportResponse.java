@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Raw response returned by an {@link ApiTransport}. The body is always fully read,
+ * so the underlying connection can go back to the pool.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ApiTransportResponse {
+    private final int status;
+    private final String reasonPhrase;
+    private final String body;
+    private final Map<String, String> headers;
+
+    /**
+     * Transport response constructor.
+     *
+     * @param status       the HTTP status code
+     * @param reasonPhrase the HTTP reason phrase
+     * @param body         the response body, null if empty
+     * @param headers      the response headers
+     */
+    public ApiTransportResponse(int status, String reasonPhrase, String body, Map<String, String> headers) {
+        this.status = status;
+        this.reasonPhrase = reasonPhrase;
+        this.body = body;
+        Map<String, String> caseInsensitive = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        caseInsensitive.putAll(headers);
+        this.headers = Collections.unmodifiableMap(caseInsensitive);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base abstract class for API transports. Bounds the number of concurrent requests
+ * (so they fit in the connection pool), runs asynchronous requests and keeps the
+ * transport metrics.
+ * <p>
+ * Requests past the bound wait for a free slot in order. Asynchronous requests wait
+ * without holding a thread, and by default are sent on a pool of as many threads as
+ * the bound; transports with a non-blocking client override {@link #sendAsync(ApiRequest)}.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public abstract class BaseApiTransport implements ApiTransport {
+    // Timeouts (in milliseconds)
+    public static final int CONNECT_TIMEOUT = 30000;
+    public static final int READ_TIMEOUT = 5000;
+    // Default max number of requests in flight, also the number of pooled connections
+    public static final int MAX_CONCURRENT_REQUESTS = 4;
+
+    protected final TransportMetrics metrics = new TransportMetrics();
+    private final RequestSlots slots;
+    // Threads running asynchronous requests of blocking transports
+    private final ExecutorService asyncExecutor;
+
+    protected BaseApiTransport() {
+        this(MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Transport constructor.
+     *
+     * @param maxConcurrentRequests the max number of requests in flight
+     */
+    protected BaseApiTransport(int maxConcurrentRequests) {
+        this.slots = new RequestSlots(maxConcurrentRequests);
+        AtomicInteger threads = new AtomicInteger();
+        this.asyncExecutor = Executors.newFixedThreadPool(maxConcurrentRequests, runnable -> {
+            Thread thread = new Thread(runnable, "Codealike API " + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public ApiTransportResponse execute(ApiRequest request) throws IOException {
+        CompletableFuture<Void> slot = slots.acquire();
+        try {
+            slot.get();
+        } catch (InterruptedException e) {
+            if (!slot.cancel(false)) {
+                slots.release();
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a connection.");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not get a connection.", e.getCause());
+        }
+
+        metrics.requestStarted(request);
+        boolean failed = true;
+        try {
+            ApiTransportResponse response = send(request);
+            failed = false;
+            return response;
+        } finally {
+            metrics.requestFinished(failed);
+            slots.release();
+        }
+    }
+
+    @Override
+    public CompletableFuture<ApiTransportResponse> executeAsync(ApiRequest request) {
+        CompletableFuture<ApiTransportResponse> result = new CompletableFuture<>();
+        CompletableFuture<Void> slot = slots.acquire();
+        slot.thenRun(() -> {
+            if (result.isDone()) {
+                // cancelled or past its deadline while waiting
+                slots.release();
+                return;
+            }
+            metrics.requestStarted(request);
+            CompletableFuture<ApiTransportResponse> sent;
+            try {
+                sent = sendAsync(request);
+            } catch (RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<ApiTransportResponse> started = sent;
+            started.whenComplete((response, t) -> {
+                metrics.requestFinished(t != null);
+                slots.release();
+                if (t != null) {
+                    result.completeExceptionally(t);
+                } else {
+                    result.complete(response);
+                }
+            });
+            // cancelled or past its deadline, abort the request in progress
+            result.whenComplete((response, t) -> {
+                if (t != null) {
+                    started.cancel(true);
+                }
+            });
+        });
+
+        result.whenComplete((response, t) -> {
+            if (t != null) {
+                // leave the queue, if still waiting
+                slot.cancel(false);
+            }
+        });
+        if (request.getTimeout() > 0) {
+            result.orTimeout(request.getTimeout(), TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        asyncExecutor.shutdownNow();
+    }
+
+    @Override
+    public TransportMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Send the request to the server.
+     *
+     * @param request the request to send
+     * @return the response, with its body fully read
+     * @throws IOException if the server could not be reached
+     */
+    protected abstract ApiTransportResponse send(ApiRequest request) throws IOException;
+
+    /**
+     * Send the request to the server without blocking the calling thread. By default
+     * the request is sent with {@link #send(ApiRequest)} on a pooled thread. Cancelling
+     * the returned future aborts the request.
+     *
+     * @param request the request to send
+     * @return a future completed with the response, or with the connection error
+     */
+    protected CompletableFuture<ApiTransportResponse> sendAsync(ApiRequest request) {
+        CompletableFuture<ApiTransportResponse> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = asyncExecutor.submit(() -> {
+                try {
+                    result.complete(send(request));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IOException("Transport is closed.", e));
+            return result;
+        }
+        result.whenComplete((response, t) -> {
+            if (t != null) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Create the SSL context shared by every connection of a transport. Certificates
+     * are not validated, as it was always the case for the Codealike API client.
+     *
+     * @return the created SSL context
+     * @throws KeyManagementException if the context could not be initialized
+     */
+    protected static SSLContext createSSLContext() throws KeyManagementException {
+        TrustManager[] certs = new TrustManager[]{new X509TrustManager() {
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[]{};
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+        }};
+
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, certs, new SecureRandom());
+            return sslContext;
+        } catch (NoSuchAlgorithmException e) {
+            throw new KeyManagementException(e);
+        }
+    }
+
+    /*
+     *  RequestSlots:
+     *  Bounds the requests in flight. Callers past the bound get a slot in
+     *  order once one is released; a caller that gave up cancels its slot
+     *  and is skipped.
+     */
+    private static class RequestSlots {
+        private final int max;
+        private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private int taken;
+
+        RequestSlots(int max) {
+            this.max = max;
+        }
+
+        synchronized CompletableFuture<Void> acquire() {
+            if (taken < max) {
+                taken++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> slot = new CompletableFuture<>();
+            waiting.add(slot);
+            return slot;
+        }
+
+        void release() {
+            while (true) {
+                CompletableFuture<Void> next;
+                synchronized (this) {
+                    next = waiting.poll();
+                    if (next == null) {
+                        taken--;
+                        return;
+                    }
+                }
+                // handed over to the next caller, unless it gave up
+                if (next.complete(null)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+/**
+ * Circuit breaker for API calls. After a number of consecutive retryable failures
+ * the circuit opens and calls fail immediately, instead of waiting for timeouts,
+ * until the open period elapses. Then a single trial call is let through: the
+ * circuit closes if it succeeds and opens again if it fails.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_PERIOD = 30000;
+
+    public enum State {
+        Closed,
+        Open,
+        HalfOpen
+    }
+
+    private final int failureThreshold;
+    private final long openPeriod;
+
+    private State state = State.Closed;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInProgress;
+    private long rejectedCalls;
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_PERIOD);
+    }
+
+    /**
+     * Circuit breaker constructor.
+     *
+     * @param failureThreshold the consecutive failures that open the circuit
+     * @param openPeriod       the time the circuit stays open (in milliseconds)
+     */
+    public CircuitBreaker(int failureThreshold, long openPeriod) {
+        this.failureThreshold = failureThreshold;
+        this.openPeriod = openPeriod;
+    }
+
+    /**
+     * Check if a call can be made.
+     *
+     * @return true if the call can go on, false if it should fail right away
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case Closed:
+                return true;
+            case Open:
+                if (System.currentTimeMillis() - openedAt >= openPeriod) {
+                    state = State.HalfOpen;
+                    trialInProgress = true;
+                    return true;
+                }
+                break;
+            case HalfOpen:
+                if (!trialInProgress) {
+                    trialInProgress = true;
+                    return true;
+                }
+                break;
+        }
+        rejectedCalls++;
+        return false;
+    }
+
+    /**
+     * Check if calls are rejected right now, without taking the trial call of a
+     * half open circuit.
+     *
+     * @return true if {@link #allowRequest()} would fail the call, false otherwise
+     */
+    public synchronized boolean isOpen() {
+        switch (state) {
+            case Open:
+                return System.currentTimeMillis() - openedAt < openPeriod;
+            case HalfOpen:
+                return trialInProgress;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Record the outcome of a call. Permanent failures (e.g. not found) prove the
+     * server is reachable, so only retryable failures count against the circuit.
+     *
+     * @param status the call status
+     */
+    public synchronized void record(ApiResponse.Status status) {
+        if (!RetryPolicy.isRetryable(status)) {
+            state = State.Closed;
+            consecutiveFailures = 0;
+            trialInProgress = false;
+            return;
+        }
+
+        consecutiveFailures++;
+        trialInProgress = false;
+        if (state == State.HalfOpen || consecutiveFailures >= failureThreshold) {
+            state = State.Open;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("state=%s, consecutiveFailures=%d, rejected=%d", state, consecutiveFailures, rejectedCalls);
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import com.codealike.client.core.internal.utils.LogManager;
+import com.codealike.client.core.internal.utils.PluginScheduler;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks whether the Codealike API can be reached: online, degraded (slow or
+ * failing responses, or a first connection failure) or offline (consecutive
+ * connection failures).
+ * <p>
+ * The state is updated from the outcome of every API call and from cheap probes
+ * of /health with a short timeout. Probes run while the API is not online, with
+ * a growing interval while offline, and now and then while online but idle.
+ * While offline API calls fail right away, so callers fall back to the local
+ * caches instead of waiting for connection timeouts.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ConnectivityMonitor {
+    // consecutive connection failures before going offline
+    public static final int OFFLINE_THRESHOLD = 2;
+    // responses slower than this make the API degraded (in milliseconds)
+    public static final long SLOW_RESPONSE = 3000;
+    public static final long PROBE_TIMEOUT = 3000;
+    private static final long ONLINE_PROBE_INTERVAL = 5 * 60 * 1000;
+    private static final long DEGRADED_PROBE_INTERVAL = 30000;
+    private static final long OFFLINE_PROBE_MIN_INTERVAL = 5000;
+    private static final long OFFLINE_PROBE_MAX_INTERVAL = 2 * 60 * 1000;
+    private static final int MAX_TRANSITIONS = 20;
+
+    public enum State {
+        Online,
+        Degraded,
+        Offline
+    }
+
+    /**
+     * Listener notified of state changes, on the thread that recorded the outcome.
+     */
+    public interface Listener {
+        void onStateChanged(State from, State to);
+    }
+
+    private State state = State.Online;
+    private int consecutiveFailures;
+    private long lastOutcomeAt = System.currentTimeMillis();
+    private long offlineProbeInterval = OFFLINE_PROBE_MIN_INTERVAL;
+    private final LinkedList<String> transitions = new LinkedList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private volatile String probeUrl;
+    private PluginScheduler.ScheduledTask nextProbe;
+    private boolean closed;
+    private boolean probeInProgress;
+
+    private long probes;
+    private long failedProbes;
+    private long shortCircuited;
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized boolean isOffline() {
+        return state == State.Offline;
+    }
+
+    /**
+     * Set the API url probed while the API is not online.
+     *
+     * @param apiUrl the Codealike API url
+     */
+    public void setProbeUrl(String apiUrl) {
+        this.probeUrl = apiUrl;
+    }
+
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Record the outcome of an API call.
+     *
+     * @param status  the call status
+     * @param latency the call duration (in milliseconds)
+     */
+    public void record(ApiResponse.Status status, long latency) {
+        record(status, latency, "request");
+    }
+
+    /**
+     * Record a call that was not made because the API is offline.
+     */
+    public synchronized void recordShortCircuit() {
+        shortCircuited++;
+    }
+
+    /**
+     * Probe /health right away, unless a probe is in progress.
+     *
+     * @return a future completed with the state after the probe
+     */
+    public CompletableFuture<State> probe() {
+        String url = probeUrl;
+        synchronized (this) {
+            if (url == null || probeInProgress) {
+                return CompletableFuture.completedFuture(state);
+            }
+            probeInProgress = true;
+            probes++;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<ApiTransportResponse> sent;
+        try {
+            sent = ApiClient.getTransport().executeAsync(ApiRequest.get(url).path("health").timeout(PROBE_TIMEOUT));
+        } catch (Exception e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        return sent.orTimeout(PROBE_TIMEOUT, TimeUnit.MILLISECONDS).handle((response, t) -> {
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            synchronized (this) {
+                probeInProgress = false;
+                if (t != null) {
+                    failedProbes++;
+                }
+            }
+            // any answer means the server can be reached, even an error
+            record(t != null ? ApiResponse.Status.ConnectionProblems : ApiResponse.Status.fromStatusCode(response.getStatus()),
+                    latency, "probe");
+            return getState();
+        });
+    }
+
+    /**
+     * Stop probing.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (nextProbe != null) {
+            nextProbe.cancel();
+            nextProbe = null;
+        }
+    }
+
+    /**
+     * Describe the current state and the last transitions, for diagnostics.
+     *
+     * @return the description
+     */
+    public synchronized String describe() {
+        StringBuilder description = new StringBuilder(String.format(
+                "State: %s (%d consecutive failures). Probes: %d (%d failed). Calls short-circuited while offline: %d.",
+                state, consecutiveFailures, probes, failedProbes, shortCircuited));
+        for (String transition : transitions) {
+            description.append(System.lineSeparator()).append("  ").append(transition);
+        }
+        return description.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getState().toString();
+    }
+
+    private void record(ApiResponse.Status status, long latency, String source) {
+        State from;
+        State to;
+        List<Listener> toNotify;
+        synchronized (this) {
+            lastOutcomeAt = System.currentTimeMillis();
+            from = state;
+            if (status == ApiResponse.Status.ConnectionProblems) {
+                consecutiveFailures++;
+                to = consecutiveFailures >= OFFLINE_THRESHOLD ? State.Offline : State.Degraded;
+                if (from == State.Offline && source.equals("probe")) {
+                    offlineProbeInterval = Math.min(OFFLINE_PROBE_MAX_INTERVAL, offlineProbeInterval * 2);
+                }
+            } else {
+                consecutiveFailures = 0;
+                offlineProbeInterval = OFFLINE_PROBE_MIN_INTERVAL;
+                to = RetryPolicy.isRetryable(status) || latency > SLOW_RESPONSE ? State.Degraded : State.Online;
+            }
+            // a request failing while offline (e.g. a probe) does not make it degraded again
+            if (from == State.Offline && to == State.Degraded) {
+                to = State.Offline;
+            }
+
+            if (from == to) {
+                if (source.equals("probe")) {
+                    scheduleProbe();
+                }
+                return;
+            }
+            state = to;
+            transitions.addFirst(String.format("%s %s -> %s (%s: %s, %d ms)", DateTime.now(), from, to, source, status, latency));
+            if (transitions.size() > MAX_TRANSITIONS) {
+                transitions.removeLast();
+            }
+            scheduleProbe();
+            toNotify = new ArrayList<>(listeners);
+        }
+
+        LogManager.INSTANCE.logInfo(String.format("Codealike API is %s (was %s, %s: %s).", to, from, source, status));
+        for (Listener listener : toNotify) {
+            try {
+                listener.onStateChanged(from, to);
+            } catch (Exception e) {
+                LogManager.INSTANCE.logWarn(e, "Connectivity listener failed.");
+            }
+        }
+    }
+
+    /*
+     *  scheduleProbe:
+     *  Schedules the next probe according to the current state,
+     *  replacing the one scheduled before.
+     */
+    private void scheduleProbe() {
+        if (closed) {
+            return;
+        }
+        if (nextProbe != null) {
+            nextProbe.cancel();
+        }
+        long delay;
+        switch (state) {
+            case Offline:
+                delay = offlineProbeInterval;
+                break;
+            case Degraded:
+                delay = DEGRADED_PROBE_INTERVAL;
+                break;
+            default:
+                delay = ONLINE_PROBE_INTERVAL;
+                break;
+        }
+        nextProbe = PluginScheduler.getInstance().schedule("connectivity probe", this::scheduledProbe, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduledProbe() {
+        synchronized (this) {
+            // calls made while online already tell how the API is doing
+            if (state == State.Online && System.currentTimeMillis() - lastOutcomeAt < ONLINE_PROBE_INTERVAL) {
+                scheduleProbe();
+                return;
+            }
+        }
+        probe();
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import com.codealike.client.core.internal.dto.HealthInfo;
+import com.codealike.client.core.internal.dto.HealthInfo.HealthInfoType;
+import com.codealike.client.core.internal.utils.Diagnostics;
+import com.codealike.client.core.internal.utils.LogManager;
+import com.codealike.client.core.internal.utils.PluginScheduler;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects health events in memory and sends them to the server in the background.
+ * <p>
+ * Events are deduplicated by fingerprint (message and stack, see
+ * {@link HealthInfo#getFingerprint()}) and counted. Pending events are sent
+ * periodically in a single request; the health endpoint takes one
+ * {@link HealthInfo}, so several events are merged into one summary. New events
+ * are rate limited and the number of distinct pending events is capped, so a
+ * burst of failures costs at most one request per flush interval.
+ * <p>
+ * Telemetry gives way to activity uploads: nothing is sent while the API circuit
+ * is not closed, requests are not retried and only one is in flight at a time.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class HealthAggregator {
+    public static final long FLUSH_INTERVAL = 60000;
+    // distinct events kept between flushes
+    public static final int MAX_PENDING_EVENTS = 50;
+    // token bucket for new distinct events: burst size and refill period (in milliseconds)
+    private static final int RATE_LIMIT_BURST = 20;
+    private static final long RATE_LIMIT_REFILL = 6000;
+    private static final long HEALTH_TIMEOUT = 5000;
+    private static final long CLOSE_TIMEOUT = 2000;
+    private static final int MAX_EVENT_MESSAGE_LENGTH = 4000;
+    private static final int MAX_MESSAGE_LENGTH = 32000;
+
+    private static HealthAggregator _instance;
+
+    private final Map<String, Event> pending = new LinkedHashMap<>();
+    private double permits = RATE_LIMIT_BURST;
+    private long lastRefill = System.currentTimeMillis();
+    private int droppedSinceFlush;
+
+    private Callable<ApiClient> clientFactory;
+    private PluginScheduler.ScheduledTask periodicFlush;
+    private CompletableFuture<Boolean> inFlight;
+
+    // metrics
+    private long reported;
+    private long deduplicated;
+    private long dropped;
+    private long requests;
+    private long sentEvents;
+
+    public static synchronized HealthAggregator getInstance() {
+        if (_instance == null) {
+            _instance = new HealthAggregator();
+            Diagnostics.getInstance().register("Health telemetry", _instance::toString);
+        }
+        return _instance;
+    }
+
+    /**
+     * Start sending pending events periodically.
+     *
+     * @param clientFactory creates the API client used to send events
+     */
+    public synchronized void start(Callable<ApiClient> clientFactory) {
+        this.clientFactory = clientFactory;
+        if (periodicFlush == null) {
+            periodicFlush = PluginScheduler.getInstance().scheduleWithFixedDelay("health flush", this::flush,
+                    FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop the periodic flush and try to send what is pending, waiting a short time.
+     */
+    public void close() {
+        CompletableFuture<Boolean> flushed;
+        synchronized (this) {
+            if (periodicFlush != null) {
+                periodicFlush.cancel();
+                periodicFlush = null;
+            }
+            flushed = flush();
+        }
+        try {
+            flushed.get(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            LogManager.INSTANCE.logWarn("Pending health events could not be sent before shutdown.");
+        }
+    }
+
+    /**
+     * Report a health event. Never blocks on the network.
+     *
+     * @param healthInfo the health event
+     */
+    public synchronized void report(HealthInfo healthInfo) {
+        reported++;
+        Event event = pending.get(healthInfo.getFingerprint());
+        if (event != null) {
+            event.add(healthInfo);
+            deduplicated++;
+            return;
+        }
+        if (pending.size() >= MAX_PENDING_EVENTS || !tryAcquirePermit()) {
+            dropped++;
+            droppedSinceFlush++;
+            return;
+        }
+        pending.put(healthInfo.getFingerprint(), new Event(healthInfo));
+    }
+
+    /**
+     * Send pending events in a single request.
+     *
+     * @return a future completed with true if events were sent, false if there was nothing
+     * to send or they could not be sent (they are kept for the next flush when the server
+     * could not be reached)
+     */
+    public synchronized CompletableFuture<Boolean> flush() {
+        if (inFlight != null && !inFlight.isDone()) {
+            return inFlight;
+        }
+        if (pending.isEmpty() || clientFactory == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (ApiClient.getCircuitBreaker().getState() != CircuitBreaker.State.Closed) {
+            // server is struggling, leave the room to activity uploads
+            return CompletableFuture.completedFuture(false);
+        }
+
+        ApiClient client;
+        try {
+            client = clientFactory.call().withRetryPolicy(RetryPolicy.NONE).withTimeout(HEALTH_TIMEOUT);
+        } catch (Exception e) {
+            LogManager.INSTANCE.logWarn(e, "Could not create API client to send health events.");
+            return CompletableFuture.completedFuture(false);
+        }
+
+        List<Event> events = new ArrayList<>(pending.values());
+        int droppedEvents = droppedSinceFlush;
+        pending.clear();
+        droppedSinceFlush = 0;
+        requests++;
+
+        inFlight = client.logHealthAsync(merge(events, droppedEvents)).handle((response, e) -> {
+            if (e == null && response.success()) {
+                synchronized (this) {
+                    events.forEach(event -> sentEvents += event.count);
+                }
+                return true;
+            }
+            if (e != null || response.connectionTimeout() || !response.isRequestSent()) {
+                requeue(events, droppedEvents);
+            }
+            return false;
+        });
+        return inFlight;
+    }
+
+    public synchronized int getPendingEvents() {
+        return pending.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d reported, %d deduplicated, %d dropped, %d pending, %d sent in %d requests",
+                reported, deduplicated, dropped, pending.size(), sentEvents, requests);
+    }
+
+    /*
+     *  requeue:
+     *  Puts events that could not be sent back in the pending
+     *  events, merged with the ones reported since.
+     */
+    private synchronized void requeue(List<Event> events, int droppedEvents) {
+        droppedSinceFlush += droppedEvents;
+        for (Event event : events) {
+            Event current = pending.get(event.fingerprint);
+            if (current != null) {
+                current.merge(event);
+            } else if (pending.size() < MAX_PENDING_EVENTS) {
+                pending.put(event.fingerprint, event);
+            } else {
+                dropped++;
+                droppedSinceFlush++;
+            }
+        }
+    }
+
+    private boolean tryAcquirePermit() {
+        long now = System.currentTimeMillis();
+        permits = Math.min(RATE_LIMIT_BURST, permits + (double) (now - lastRefill) / RATE_LIMIT_REFILL);
+        lastRefill = now;
+        if (permits < 1) {
+            return false;
+        }
+        permits--;
+        return true;
+    }
+
+    /*
+     *  merge:
+     *  Builds the health event sent to the server. A single event is
+     *  sent as reported, several ones as a summary with their counts.
+     */
+    private static HealthInfo merge(List<Event> events, int droppedEvents) {
+        if (events.size() == 1 && events.get(0).count == 1 && droppedEvents == 0) {
+            return events.get(0).latest;
+        }
+
+        HealthInfoType type = HealthInfoType.Info;
+        int occurrences = 0;
+        for (Event event : events) {
+            occurrences += event.count;
+            if (event.latest.getType().ordinal() > type.ordinal()) {
+                type = event.latest.getType();
+            }
+        }
+
+        StringBuilder message = new StringBuilder(String.format("%d health events (%d distinct", occurrences, events.size()));
+        if (droppedEvents > 0) {
+            message.append(String.format(", %d dropped by rate limit", droppedEvents));
+        }
+        message.append(").");
+        for (Event event : events) {
+            if (message.length() >= MAX_MESSAGE_LENGTH) {
+                break;
+            }
+            String eventMessage = event.latest.getMessage();
+            if (eventMessage.length() > MAX_EVENT_MESSAGE_LENGTH) {
+                eventMessage = eventMessage.substring(0, MAX_EVENT_MESSAGE_LENGTH) + "...";
+            }
+            message.append(String.format("%n[%s x%d, %s - %s] %s", event.latest.getType(), event.count,
+                    event.firstSeen, event.lastSeen, eventMessage));
+        }
+        if (message.length() > MAX_MESSAGE_LENGTH) {
+            message.setLength(MAX_MESSAGE_LENGTH);
+        }
+
+        HealthInfo latest = events.get(events.size() - 1).latest;
+        return new HealthInfo(message.toString(), latest.getSource(), type, latest.getIdentity());
+    }
+
+    private static class Event {
+        private final String fingerprint;
+        private DateTime firstSeen;
+        private DateTime lastSeen;
+        private HealthInfo latest;
+        private int count;
+
+        private Event(HealthInfo healthInfo) {
+            this.fingerprint = healthInfo.getFingerprint();
+            this.firstSeen = DateTime.now();
+            this.lastSeen = firstSeen;
+            this.latest = healthInfo;
+            this.count = 1;
+        }
+
+        private void add(HealthInfo healthInfo) {
+            latest = healthInfo;
+            lastSeen = DateTime.now();
+            count++;
+        }
+
+        private void merge(Event older) {
+            firstSeen = older.firstSeen;
+            count += older.count;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ApiTransport} built on the JDK HttpClient. Negotiates HTTP/2, so concurrent
+ * uploads, replays and profile fetches are multiplexed on a single connection, and
+ * does not need the Jersey/HK2 stack to be loaded. Asynchronous requests do not
+ * hold a thread while in flight, so up to {@link #MAX_CONCURRENT_STREAMS} of them
+ * share the connection.
+ * <p>
+ * Timeouts follow the Jersey transport: {@link #READ_TIMEOUT} starts once the
+ * request body is sent and bounds the wait for the response, then the inactivity
+ * between response body chunks, not the whole exchange. HttpClient hands the body
+ * to the socket buffers long before it is on the network, so the wait for the
+ * response also allows the body to drain at {@link #MIN_UPLOAD_RATE}, and a large
+ * upload on a slow link is not cut short. An upload making no progress for
+ * {@link #CONNECT_TIMEOUT} fails.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class HttpClientApiTransport extends BaseApiTransport {
+    // slowest upload link allowed for, in bytes per second
+    public static final long MIN_UPLOAD_RATE = 16 * 1024;
+    // requests in flight, multiplexed as streams of one connection over HTTP/2
+    public static final int MAX_CONCURRENT_STREAMS = 16;
+
+    private final ExecutorService executor;
+    private final HttpClient client;
+
+    /**
+     * HttpClient transport constructor.
+     *
+     * @throws KeyManagementException if the SSL context could not be initialized
+     */
+    public HttpClientApiTransport() throws KeyManagementException {
+        super(MAX_CONCURRENT_STREAMS);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Codealike HTTP " + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .sslContext(new CountingSSLContext(createSSLContext(), metrics))
+                .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT))
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    protected ApiTransportResponse send(ApiRequest request) throws IOException {
+        CompletableFuture<ApiTransportResponse> pending = sendAsync(request);
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            pending.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + request);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Request failed: " + request, cause);
+        }
+    }
+
+    @Override
+    protected CompletableFuture<ApiTransportResponse> sendAsync(ApiRequest request) {
+        Activity activity = new Activity();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUrl()))
+                .header("Accept", "application/json");
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        long drainTime = 0;
+        if (request.getBody() == null) {
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+            activity.sent();
+        } else {
+            HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.ofString(request.getBody());
+            drainTime = Math.max(0, body.contentLength()) * 1000 / MIN_UPLOAD_RATE;
+            builder.header("Content-Type", "application/json");
+            builder.method(request.getMethod(), activity.track(body));
+        }
+
+        CompletableFuture<ApiTransportResponse> result = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<String>> pending = client.sendAsync(builder.build(),
+                activity.track(HttpResponse.BodyHandlers.ofString()));
+        pending.whenComplete((response, t) -> {
+            if (t != null) {
+                result.completeExceptionally(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+            } else {
+                result.complete(toResponse(response));
+            }
+        });
+        // cancelled, past its deadline or inactive for too long, abort the exchange
+        result.whenComplete((response, t) -> {
+            if (t != null) {
+                pending.cancel(true);
+            }
+        });
+
+        long readTimeout = request.getTimeout() > 0 ? Math.min(request.getTimeout(), READ_TIMEOUT) : READ_TIMEOUT;
+        watch(result, activity, readTimeout, drainTime, request, readTimeout);
+        return result;
+    }
+
+    private static ApiTransportResponse toResponse(HttpResponse<String> response) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            if (!header.getValue().isEmpty()) {
+                headers.put(header.getKey(), header.getValue().get(0));
+            }
+        }
+        String body = response.body() == null || response.body().isEmpty() ? null : response.body();
+        // HTTP/2 has no reason phrase
+        return new ApiTransportResponse(response.statusCode(), "HTTP " + response.statusCode(), body, headers);
+    }
+
+    /*
+     *  watch:
+     *  Fails the exchange once it has been inactive for too long, without
+     *  holding a thread: the connect timeout while the body is being sent,
+     *  then the read timeout plus the body drain time until the response
+     *  starts, then the read timeout between response body chunks.
+     */
+    private static void watch(CompletableFuture<ApiTransportResponse> result, Activity activity, long readTimeout,
+                              long drainTime, ApiRequest request, long wait) {
+        CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            long timeout = activity.isResponding() ? readTimeout
+                    : activity.isSent() ? readTimeout + drainTime : CONNECT_TIMEOUT;
+            long idle = activity.idleMillis();
+            if (idle >= timeout) {
+                result.completeExceptionally(new HttpTimeoutException(String.format("No %s for %d ms: %s",
+                        activity.isSent() ? "response" : "upload progress", idle, request)));
+            } else {
+                watch(result, activity, readTimeout, drainTime, request, timeout - idle);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        // the client has no close method before Java 21, its connections
+        // are released once the executor and the client are unreachable
+        super.close();
+        executor.shutdownNow();
+    }
+
+    /*
+     *  Activity:
+     *  Last time the exchange made progress: a request body chunk handed to
+     *  the connection, the request body completed, the response headers or a
+     *  response body chunk received.
+     */
+    private static class Activity {
+        private volatile long last = System.nanoTime();
+        private volatile boolean sent;
+        private volatile boolean responding;
+
+        void touch() {
+            last = System.nanoTime();
+        }
+
+        void sent() {
+            sent = true;
+            touch();
+        }
+
+        boolean isSent() {
+            return sent;
+        }
+
+        boolean isResponding() {
+            return responding;
+        }
+
+        long idleMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - last);
+        }
+
+        HttpRequest.BodyPublisher track(HttpRequest.BodyPublisher publisher) {
+            return new HttpRequest.BodyPublisher() {
+                @Override
+                public long contentLength() {
+                    return publisher.contentLength();
+                }
+
+                @Override
+                public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+                    publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+                        @Override
+                        public void onSubscribe(Flow.Subscription subscription) {
+                            subscriber.onSubscribe(subscription);
+                        }
+
+                        @Override
+                        public void onNext(ByteBuffer item) {
+                            touch();
+                            subscriber.onNext(item);
+                        }
+
+                        @Override
+                        public void onError(Throwable throwable) {
+                            subscriber.onError(throwable);
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            sent();
+                            subscriber.onComplete();
+                        }
+                    });
+                }
+            };
+        }
+
+        <T> HttpResponse.BodyHandler<T> track(HttpResponse.BodyHandler<T> handler) {
+            return info -> {
+                // a response may come before the whole body is sent, e.g. a rejected upload
+                sent = true;
+                responding = true;
+                touch();
+                HttpResponse.BodySubscriber<T> subscriber = handler.apply(info);
+                return new HttpResponse.BodySubscriber<T>() {
+                    @Override
+                    public CompletionStage<T> getBody() {
+                        return subscriber.getBody();
+                    }
+
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        subscriber.onSubscribe(subscription);
+                    }
+
+                    @Override
+                    public void onNext(List<ByteBuffer> item) {
+                        touch();
+                        subscriber.onNext(item);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        subscriber.onError(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        subscriber.onComplete();
+                    }
+                };
+            };
+        }
+    }
+
+    /*
+     *  CountingSSLContext:
+     *  HttpClient creates one SSL engine per connection, so engines are
+     *  counted as connections (and handshakes) in the transport metrics.
+     */
+    private static class CountingSSLContext extends SSLContext {
+        CountingSSLContext(SSLContext delegate, TransportMetrics metrics) {
+            super(new SSLContextSpi() {
+                @Override
+                protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) {
+                    // delegate is already initialized
+                }
+
+                @Override
+                protected SSLSocketFactory engineGetSocketFactory() {
+                    return delegate.getSocketFactory();
+                }
+
+                @Override
+                protected SSLServerSocketFactory engineGetServerSocketFactory() {
+                    return delegate.getServerSocketFactory();
+                }
+
+                @Override
+                protected SSLEngine engineCreateSSLEngine() {
+                    opened();
+                    return delegate.createSSLEngine();
+                }
+
+                @Override
+                protected SSLEngine engineCreateSSLEngine(String host, int port) {
+                    opened();
+                    return delegate.createSSLEngine(host, port);
+                }
+
+                @Override
+                protected SSLSessionContext engineGetServerSessionContext() {
+                    return delegate.getServerSessionContext();
+                }
+
+                @Override
+                protected SSLSessionContext engineGetClientSessionContext() {
+                    return delegate.getClientSessionContext();
+                }
+
+                @Override
+                protected SSLParameters engineGetDefaultSSLParameters() {
+                    return delegate.getDefaultSSLParameters();
+                }
+
+                @Override
+                protected SSLParameters engineGetSupportedSSLParameters() {
+                    return delegate.getSupportedSSLParameters();
+                }
+
+                private void opened() {
+                    metrics.connectionOpened();
+                    metrics.handshakeCompleted(new byte[0]);
+                }
+            }, delegate.getProvider(), delegate.getProtocol());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.HttpUrlConnectorProvider;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Jersey based {@link ApiTransport}. A single Jersey client is built for the lifetime
+ * of the transport, on top of the JDK HttpURLConnection keep-alive pool.
+ * <p>
+ * The pool only reuses https connections created by the same socket factory, so the
+ * SSL context and its socket factory are created once and shared by every request.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class JerseyApiTransport extends BaseApiTransport {
+    private final Client client;
+
+    /**
+     * Jersey transport constructor.
+     *
+     * @throws KeyManagementException if the SSL context could not be initialized
+     */
+    public JerseyApiTransport() throws KeyManagementException {
+        SSLContext sslContext = createSSLContext();
+        SSLSocketFactory socketFactory = new CountingSSLSocketFactory(sslContext.getSocketFactory(), metrics);
+
+        HttpUrlConnectorProvider connector = new HttpUrlConnectorProvider().connectionFactory(url -> {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            if (connection instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) connection).setSSLSocketFactory(socketFactory);
+            }
+            return connection;
+        });
+
+        ClientConfig config = new ClientConfig().connectorProvider(connector);
+        this.client = ClientBuilder.newBuilder()
+                .withConfig(config)
+                .sslContext(sslContext)
+                .hostnameVerifier(HttpsURLConnection.getDefaultHostnameVerifier())
+                .build();
+        this.client.property(ClientProperties.CONNECT_TIMEOUT, CONNECT_TIMEOUT);
+        this.client.property(ClientProperties.READ_TIMEOUT, READ_TIMEOUT);
+    }
+
+    @Override
+    protected ApiTransportResponse send(ApiRequest request) throws IOException {
+        Invocation.Builder invocationBuilder = client.target(request.getUrl())
+                .request(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON);
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            invocationBuilder.header(header.getKey(), header.getValue());
+        }
+        if (request.getTimeout() > 0) {
+            invocationBuilder.property(ClientProperties.CONNECT_TIMEOUT, (int) Math.min(request.getTimeout(), CONNECT_TIMEOUT));
+            invocationBuilder.property(ClientProperties.READ_TIMEOUT, (int) Math.min(request.getTimeout(), READ_TIMEOUT));
+        }
+
+        Response response;
+        try {
+            if (request.getBody() == null) {
+                response = invocationBuilder.method(request.getMethod());
+            } else {
+                response = invocationBuilder.method(request.getMethod(),
+                        Entity.entity(request.getBody(), MediaType.APPLICATION_JSON));
+            }
+        } catch (ProcessingException e) {
+            throw new IOException(e.getMessage(), e.getCause() != null ? e.getCause() : e);
+        }
+
+        // the entity is always consumed and the response closed, otherwise
+        // the connection can not go back to the keep-alive pool
+        try {
+            String body = response.hasEntity() ? response.readEntity(String.class) : null;
+            Map<String, String> headers = new HashMap<>();
+            for (Map.Entry<String, List<String>> header : response.getStringHeaders().entrySet()) {
+                if (!header.getValue().isEmpty()) {
+                    headers.put(header.getKey(), header.getValue().get(0));
+                }
+            }
+            return new ApiTransportResponse(response.getStatus(), response.getStatusInfo().getReasonPhrase(), body, headers);
+        } catch (ProcessingException e) {
+            throw new IOException(e.getMessage(), e.getCause() != null ? e.getCause() : e);
+        } finally {
+            response.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        client.close();
+    }
+
+    /*
+     *  CountingSSLSocketFactory:
+     *  Delegates to the shared SSL socket factory, counting every created
+     *  connection and completed handshake in the transport metrics.
+     */
+    private static class CountingSSLSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+        private final TransportMetrics metrics;
+
+        CountingSSLSocketFactory(SSLSocketFactory delegate, TransportMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        private Socket track(Socket socket) {
+            metrics.connectionOpened();
+            if (socket instanceof SSLSocket) {
+                ((SSLSocket) socket).addHandshakeCompletedListener(
+                        event -> metrics.handshakeCompleted(event.getSession().getId()));
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return track(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            return track(delegate.createSocket(socket, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return track(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return track(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import com.codealike.client.core.internal.serialization.CodealikeJson;
+import com.codealike.client.core.internal.utils.LocalIOExecutor;
+import com.codealike.client.core.internal.utils.LogManager;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of API responses for resources that rarely change (plugin settings, version,
+ * profile, user configuration and solution contexts).
+ * <p>
+ * Only successful GET responses of requests with a TTL (see {@link ApiRequest#cache})
+ * are stored. Expired entries are revalidated with If-None-Match when the server sent
+ * an ETag. Requests flagged as stale-while-revalidate are answered from an expired
+ * entry right away while it is refreshed in background, and from any entry when the
+ * server can not be reached.
+ * <p>
+ * Entries can optionally be persisted, so they survive IDE restarts.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ResponseCache {
+    private static final int MAX_ENTRIES = 256;
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final Map<String, Entry> entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true));
+    // keys being revalidated in background
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private File persistFile;
+    // stored entries not loaded yet
+    private boolean loadPending;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong servedOnError = new AtomicLong();
+
+    /**
+     * Persist entries to the given file. The entries already stored in it are loaded
+     * on first use of the cache, so JSON parsing stays off the startup path.
+     *
+     * @param persistFile the file where entries are persisted
+     */
+    public synchronized void persistTo(File persistFile) {
+        this.persistFile = persistFile;
+        this.loadPending = persistFile != null && persistFile.exists();
+    }
+
+    /**
+     * Get a response for the request from the cache, if allowed by its TTL.
+     *
+     * @param request the request to answer
+     * @return the cached response, or null if the request must go to the server
+     */
+    public ApiTransportResponse lookup(ApiRequest request) {
+        if (!isCacheable(request)) {
+            return null;
+        }
+        Entry entry = entries().get(key(request));
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.isFresh()) {
+            hits.incrementAndGet();
+            return entry.toResponse();
+        }
+        if (request.isStaleWhileRevalidate()) {
+            staleHits.incrementAndGet();
+            return entry.toResponse();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Check if an expired entry answered the request and should be revalidated. Only
+     * one revalidation per entry is started, until {@link #update} is called.
+     *
+     * @param request the request answered from cache
+     * @return true if the caller should revalidate the entry
+     */
+    public boolean startRevalidation(ApiRequest request) {
+        Entry entry = entries().get(key(request));
+        return entry != null && !entry.isFresh() && revalidating.add(key(request));
+    }
+
+    /**
+     * End a background revalidation that could not reach the server.
+     *
+     * @param request the revalidation request
+     */
+    public void endRevalidation(ApiRequest request) {
+        revalidating.remove(key(request));
+    }
+
+    /**
+     * Add the validator of the cached entry (if any) to the request.
+     *
+     * @param request the request going to the server
+     * @return the same request
+     */
+    public ApiRequest conditional(ApiRequest request) {
+        if (isCacheable(request)) {
+            Entry entry = entries().get(key(request));
+            if (entry != null && entry.getEtag() != null) {
+                request.header("If-None-Match", entry.getEtag());
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Update the cache with a response from the server.
+     *
+     * @param request  the request sent
+     * @param response the server response
+     * @return the response to use: the cached one if the server answered not modified
+     */
+    public ApiTransportResponse update(ApiRequest request, ApiTransportResponse response) {
+        if (!isCacheable(request)) {
+            return response;
+        }
+        String key = key(request);
+        revalidating.remove(key);
+
+        if (response.getStatus() == HTTP_NOT_MODIFIED) {
+            Entry entry = entries().get(key);
+            if (entry != null) {
+                notModified.incrementAndGet();
+                entry.setStoredAt(System.currentTimeMillis());
+                entry.setTtl(request.getCacheTtl());
+                persist();
+                return entry.toResponse();
+            }
+        } else if (response.getStatus() == HTTP_OK && response.getBody() != null) {
+            entries().put(key, new Entry(response.getBody(), response.getHeader("ETag"), request.getCacheTtl()));
+            evict();
+            persist();
+        }
+        return response;
+    }
+
+    /**
+     * Get any cached response for a request that failed to reach the server.
+     *
+     * @param request the failed request
+     * @return the cached response, or null if there is none or the request can not use it
+     */
+    public ApiTransportResponse fallback(ApiRequest request) {
+        if (!isCacheable(request)) {
+            return null;
+        }
+        String key = key(request);
+        revalidating.remove(key);
+        Entry entry = entries().get(key);
+        if (entry == null || !request.isStaleWhileRevalidate()) {
+            return null;
+        }
+        servedOnError.incrementAndGet();
+        return entry.toResponse();
+    }
+
+    /**
+     * Remove every cached response.
+     */
+    public void clear() {
+        entries().clear();
+        persist();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    public long getServedOnError() {
+        return servedOnError.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("entries=%d, hits=%d, stale=%d, misses=%d, notModified=%d, servedOnError=%d",
+                entries.size(), getHits(), getStaleHits(), getMisses(), getNotModified(), getServedOnError());
+    }
+
+    private static boolean isCacheable(ApiRequest request) {
+        return request.getCacheTtl() > 0 && ApiRequest.GET.equals(request.getMethod());
+    }
+
+    private static String key(ApiRequest request) {
+        // responses of different users must never be mixed
+        String identity = request.getHeaders().get(ApiClient.X_EAUTH_IDENTITY_HEADER);
+        return (identity != null ? identity : "") + " " + request.getUrl();
+    }
+
+    /*
+     *  entries:
+     *  Returns the cached entries, loading the stored ones first
+     *  if that was not done yet
+     */
+    private Map<String, Entry> entries() {
+        synchronized (this) {
+            if (loadPending) {
+                loadPending = false;
+                try {
+                    Map<String, Entry> stored = CodealikeJson.getMapper().readValue(persistFile, new TypeReference<HashMap<String, Entry>>() {
+                    });
+                    entries.putAll(stored);
+                } catch (IOException e) {
+                    LogManager.INSTANCE.logWarn(e, "Could not load cached API responses.");
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void evict() {
+        synchronized (entries) {
+            // access ordered, so the first entries are the least recently used
+            while (entries.size() > MAX_ENTRIES) {
+                entries.remove(entries.keySet().iterator().next());
+            }
+        }
+    }
+
+    private void persist() {
+        File target;
+        synchronized (this) {
+            target = persistFile;
+        }
+        if (target == null) {
+            return;
+        }
+        try {
+            byte[] content;
+            synchronized (entries) {
+                content = CodealikeJson.getMapper().writeValueAsBytes(new HashMap<>(entries));
+            }
+            LocalIOExecutor.getInstance().write(target, content);
+        } catch (IOException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not store cached API responses.");
+        }
+    }
+
+    /*
+     *  Entry:
+     *  Cached response body with its validator, stored time and TTL.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entry {
+        private String body;
+        private String etag;
+        private long storedAt;
+        private long ttl;
+
+        public Entry() {
+        }
+
+        Entry(String body, String etag, long ttl) {
+            this.body = body;
+            this.etag = etag;
+            this.ttl = ttl;
+            this.storedAt = System.currentTimeMillis();
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - storedAt < ttl;
+        }
+
+        ApiTransportResponse toResponse() {
+            return new ApiTransportResponse(HTTP_OK, "OK", body, Collections.emptyMap());
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public void setBody(String body) {
+            this.body = body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public void setEtag(String etag) {
+            this.etag = etag;
+        }
+
+        public long getStoredAt() {
+            return storedAt;
+        }
+
+        public void setStoredAt(long storedAt) {
+            this.storedAt = storedAt;
+        }
+
+        public long getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(long ttl) {
+            this.ttl = ttl;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy for API calls. Failures are classified by {@link ApiResponse.Status}:
+ * connection problems and server errors are retryable, any other status is permanent.
+ * Retries wait an exponential backoff with jitter, bounded by a max delay.
+ * <p>
+ * Requests that are not idempotent (POST, PUT) are only retried when they never
+ * reached the server or the server refused them (service unavailable), so a batch
+ * is never posted twice because of a retry.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class RetryPolicy {
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 200, 2000);
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    /**
+     * Retry policy constructor.
+     *
+     * @param maxAttempts the max number of attempts, including the first one
+     * @param baseDelay   the delay before the first retry (in milliseconds)
+     * @param maxDelay    the max delay between attempts (in milliseconds)
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Check if a failure status may go away by trying again.
+     *
+     * @param status the response status
+     * @return true if the status is retryable, false if it is permanent
+     */
+    public static boolean isRetryable(ApiResponse.Status status) {
+        switch (status) {
+            case ConnectionProblems:
+            case ServiceUnavailable:
+            case InternalServerError:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Check if a request should be tried again.
+     *
+     * @param attempt    the number of attempts made so far
+     * @param response   the response of the last attempt
+     * @param idempotent true if the request can be executed twice safely
+     * @return true if the request should be retried, false otherwise
+     */
+    public boolean shouldRetry(int attempt, ApiResponse<?> response, boolean idempotent) {
+        if (attempt >= maxAttempts || !isRetryable(response.getStatus())) {
+            return false;
+        }
+        return idempotent || !response.isRequestSent() || response.getStatus() == ApiResponse.Status.ServiceUnavailable;
+    }
+
+    /**
+     * Get the delay before the next attempt: exponential backoff with "equal jitter",
+     * half of the delay is fixed and the other half random.
+     *
+     * @param attempt the number of attempts made so far
+     * @return the delay in milliseconds
+     */
+    public long getDelay(int attempt) {
+        long delay = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 16));
+        if (delay <= 0) {
+            return 0;
+        }
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical calls in flight: while a call for a key is running, other
+ * callers for the same key wait for it and share its result instead of making
+ * their own call.
+ * <p>
+ * Each asynchronous caller gets its own view of the shared call, so cancelling
+ * it does not affect the others. The shared call itself is cancelled once every
+ * caller cancelled its view and no synchronous caller waits for it. A synchronous
+ * caller waiting for a shared call gives up at its own deadline.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class SingleFlight {
+    private final Map<String, Call> calls = new HashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Execute a call, or wait for the identical call already in flight.
+     *
+     * @param key     the call key, identical calls have the same key
+     * @param timeout the max time to wait for a call in flight (in milliseconds), 0 for no limit
+     * @param call    the call to execute
+     * @return the call result
+     * @throws CompletionException if the call in flight failed, or did not complete in time
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, long timeout, Supplier<T> call) {
+        Call shared;
+        boolean leader = false;
+        synchronized (calls) {
+            shared = calls.get(key);
+            if (shared == null) {
+                shared = new Call();
+                calls.put(key, shared);
+                leader = true;
+            } else {
+                coalesced.incrementAndGet();
+                shared.waiters++;
+            }
+        }
+        if (!leader) {
+            try {
+                return (T) await(shared, timeout);
+            } finally {
+                leave(shared);
+            }
+        }
+
+        executed.incrementAndGet();
+        try {
+            T result = call.get();
+            shared.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            shared.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            release(key, shared);
+        }
+    }
+
+    /**
+     * Execute an asynchronous call, or join the identical call already in flight.
+     *
+     * @param key  the call key, identical calls have the same key
+     * @param call the call to execute
+     * @return a future completed with the call result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(String key, Supplier<CompletableFuture<T>> call) {
+        Call shared;
+        boolean leader = false;
+        synchronized (calls) {
+            shared = calls.get(key);
+            if (shared == null) {
+                shared = new Call();
+                calls.put(key, shared);
+                leader = true;
+            } else {
+                coalesced.incrementAndGet();
+            }
+            shared.waiters++;
+        }
+
+        if (leader) {
+            executed.incrementAndGet();
+            Call started = shared;
+            CompletableFuture<T> source;
+            try {
+                source = call.get();
+            } catch (RuntimeException | Error e) {
+                release(key, started);
+                started.result.completeExceptionally(e);
+                throw e;
+            }
+            started.source = source;
+            source.whenComplete((result, t) -> {
+                release(key, started);
+                if (t != null) {
+                    started.result.completeExceptionally(t);
+                } else {
+                    started.result.complete(result);
+                }
+            });
+        }
+
+        Call joined = shared;
+        CompletableFuture<T> view = (CompletableFuture<T>) joined.result.copy();
+        view.whenComplete((result, t) -> {
+            if (view.isCancelled()) {
+                leave(joined);
+            }
+        });
+        return view;
+    }
+
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public int getInFlight() {
+        synchronized (calls) {
+            return calls.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("executed=%d, coalesced=%d, inFlight=%d", getExecuted(), getCoalesced(), getInFlight());
+    }
+
+    private static Object await(Call shared, long timeout) {
+        if (timeout <= 0) {
+            return shared.result.join();
+        }
+        try {
+            return shared.result.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new CompletionException(e);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /*
+     *  leave:
+     *  A caller no longer waits for the shared call. The last one to leave
+     *  cancels the asynchronous call if it is still running.
+     */
+    private void leave(Call call) {
+        CompletableFuture<?> source = null;
+        synchronized (calls) {
+            if (--call.waiters == 0 && !call.result.isDone()) {
+                source = call.source;
+            }
+        }
+        if (source != null) {
+            source.cancel(true);
+        }
+    }
+
+    private void release(String key, Call call) {
+        synchronized (calls) {
+            calls.remove(key, call);
+        }
+    }
+
+    private static class Call {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        volatile CompletableFuture<?> source;
+        // callers still interested in the result: asynchronous views not cancelled
+        // and synchronous joiners still waiting
+        int waiters;
+    }
+}
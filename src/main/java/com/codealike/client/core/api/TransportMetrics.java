@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection metrics of an {@link ApiTransport}.
+ * <p>
+ * Connections are observed when TLS sockets are created, so the connection
+ * reuse ratio only covers https requests.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class TransportMetrics {
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong secureRequests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    // TLS session ids already seen, a handshake reusing one was a resumption
+    private final Set<String> sessionIds = ConcurrentHashMap.newKeySet();
+
+    void requestStarted(ApiRequest request) {
+        requests.incrementAndGet();
+        if (request.getUrl().startsWith("https:")) {
+            secureRequests.incrementAndGet();
+        }
+        activeRequests.incrementAndGet();
+    }
+
+    void requestFinished(boolean failed) {
+        activeRequests.decrementAndGet();
+        if (failed) {
+            failures.incrementAndGet();
+        }
+    }
+
+    void connectionOpened() {
+        connections.incrementAndGet();
+    }
+
+    void handshakeCompleted(byte[] sessionId) {
+        StringBuilder id = new StringBuilder();
+        for (byte b : sessionId) {
+            id.append(String.format("%02x", b));
+        }
+        if (sessionId.length > 0 && !sessionIds.add(id.toString())) {
+            resumedHandshakes.incrementAndGet();
+        } else {
+            handshakes.incrementAndGet();
+        }
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public int getActiveRequests() {
+        return activeRequests.get();
+    }
+
+    public long getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Get the number of full TLS handshakes.
+     *
+     * @return the number of full handshakes
+     */
+    public long getHandshakes() {
+        return handshakes.get();
+    }
+
+    /**
+     * Get the number of TLS handshakes that resumed a previous session.
+     *
+     * @return the number of abbreviated handshakes
+     */
+    public long getResumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    /**
+     * Get the ratio of https requests served by an already open connection.
+     *
+     * @return the connection reuse ratio, between 0 and 1
+     */
+    public double getConnectionReuseRatio() {
+        long secure = secureRequests.get();
+        if (secure == 0) {
+            return 0;
+        }
+        return Math.max(0, 1 - (double) connections.get() / secure);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests=%d, failures=%d, active=%d, connections=%d, handshakes=%d, resumed=%d, reuse=%.2f",
+                getRequests(), getFailures(), getActiveRequests(), getConnections(), getHandshakes(),
+                getResumedHandshakes(), getConnectionReuseRatio());
+    }
+}
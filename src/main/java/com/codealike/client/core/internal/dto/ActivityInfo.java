@@ -19,6 +19,10 @@ public class ActivityInfo {
     private UUID batchId;
     private DateTime batchStart;
     private DateTime batchEnd;
+    // set only on chunks of a batch too large to be posted at once
+    private UUID parentBatchId;
+    private Integer chunkIndex;
+    private Integer chunkCount;
 
     public ActivityInfo() {
     }
@@ -130,4 +134,28 @@ public class ActivityInfo {
     public void setBatchEnd(DateTime batchEnd) {
         this.batchEnd = batchEnd;
     }
+
+    public UUID getParentBatchId() {
+        return parentBatchId;
+    }
+
+    public void setParentBatchId(UUID parentBatchId) {
+        this.parentBatchId = parentBatchId;
+    }
+
+    public Integer getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(Integer chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(Integer chunkCount) {
+        this.chunkCount = chunkCount;
+    }
 }
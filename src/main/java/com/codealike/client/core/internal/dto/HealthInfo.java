@@ -1,6 +1,7 @@
 package com.codealike.client.core.internal.dto;
 
 import com.codealike.client.core.internal.utils.ExceptionUtils;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 public class HealthInfo {
 
@@ -8,12 +9,15 @@ public class HealthInfo {
     private String source;
     private String message;
     private HealthInfoType type;
+    // identifies repeated events, not sent to the server
+    private String fingerprint;
 
     public HealthInfo(Exception ex, String message, String source, HealthInfoType type, String identity) {
         this.identity = identity;
         this.message = message + " Details: " + ExceptionUtils.toString(ex);
         this.type = type;
         this.source = source;
+        this.fingerprint = type + " " + source + " " + message + " " + ExceptionUtils.fingerprint(ex);
     }
 
     public HealthInfo(String message, String source, HealthInfoType type, String identity) {
@@ -21,6 +25,7 @@ public class HealthInfo {
         this.message = message;
         this.type = type;
         this.source = source;
+        this.fingerprint = type + " " + source + " " + message;
     }
 
     public String getIdentity() {
@@ -39,6 +44,11 @@ public class HealthInfo {
         return type;
     }
 
+    @JsonIgnore
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
     public enum HealthInfoType {
         Info,
         Warn,
@@ -3,6 +3,7 @@
  */
 package com.codealike.client.core.internal.model;
 
+import com.codealike.client.core.internal.processing.ActivityInfoSplitter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 /**
@@ -16,10 +17,16 @@ public class GlobalSettings {
     private String userToken;
     private String apiUrl;
     private boolean trackSent;
+    private String httpTransport;
+    private boolean persistResponseCache;
+    private int maxPayloadSize;
 
     public GlobalSettings() {
         this.setApiUrl("https://codealike.com/api/v2");
         this.trackSent = true;
+        this.httpTransport = "jersey";
+        this.persistResponseCache = true;
+        this.maxPayloadSize = ActivityInfoSplitter.DEFAULT_MAX_PAYLOAD_SIZE;
     }
 
     public String getUserToken() {
@@ -45,4 +52,28 @@ public class GlobalSettings {
     public void setTrackSent(boolean trackSent) {
         this.trackSent = trackSent;
     }
+
+    public String getHttpTransport() {
+        return httpTransport;
+    }
+
+    public void setHttpTransport(String httpTransport) {
+        this.httpTransport = httpTransport;
+    }
+
+    public boolean getPersistResponseCache() {
+        return persistResponseCache;
+    }
+
+    public void setPersistResponseCache(boolean persistResponseCache) {
+        this.persistResponseCache = persistResponseCache;
+    }
+
+    public int getMaxPayloadSize() {
+        return maxPayloadSize;
+    }
+
+    public void setMaxPayloadSize(int maxPayloadSize) {
+        this.maxPayloadSize = maxPayloadSize;
+    }
 }
@@ -3,12 +3,15 @@
  */
 package com.codealike.client.core.internal.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
 /**
  * Plugin settings model.
  *
  * @author Daniel, pvmagacho
  * @version 1.6.0.0
  */
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class PluginSettings {
     private int idleCheckInterval;
     private int idleMaxPeriod;
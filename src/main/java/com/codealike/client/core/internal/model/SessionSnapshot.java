@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.model;
+
+import com.codealike.client.core.internal.dto.ProfileInfo;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Session snapshot model. State of the last session confirmed by the server,
+ * used to start tracking without network access.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SessionSnapshot {
+    private String identity;
+    private ProfileInfo profile;
+    private TrackActivity trackActivity;
+    private PluginSettings pluginSettings;
+    // when the session was confirmed (in milliseconds since epoch)
+    private long confirmedAt;
+
+    public SessionSnapshot() {
+    }
+
+    public SessionSnapshot(String identity, ProfileInfo profile, TrackActivity trackActivity, PluginSettings pluginSettings) {
+        this.identity = identity;
+        this.profile = profile;
+        this.trackActivity = trackActivity;
+        this.pluginSettings = pluginSettings;
+        this.confirmedAt = System.currentTimeMillis();
+    }
+
+    public String getIdentity() {
+        return identity;
+    }
+
+    public void setIdentity(String identity) {
+        this.identity = identity;
+    }
+
+    public ProfileInfo getProfile() {
+        return profile;
+    }
+
+    public void setProfile(ProfileInfo profile) {
+        this.profile = profile;
+    }
+
+    public TrackActivity getTrackActivity() {
+        return trackActivity;
+    }
+
+    public void setTrackActivity(TrackActivity trackActivity) {
+        this.trackActivity = trackActivity;
+    }
+
+    public PluginSettings getPluginSettings() {
+        return pluginSettings;
+    }
+
+    public void setPluginSettings(PluginSettings pluginSettings) {
+        this.pluginSettings = pluginSettings;
+    }
+
+    public long getConfirmedAt() {
+        return confirmedAt;
+    }
+
+    public void setConfirmedAt(long confirmedAt) {
+        this.confirmedAt = confirmedAt;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.processing;
+
+import com.codealike.client.core.internal.dto.ActivityEntryInfo;
+import com.codealike.client.core.internal.dto.ActivityInfo;
+import com.codealike.client.core.internal.serialization.CodealikeJson;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Splits activity batches larger than the payload budget into time-contiguous
+ * chunks that can be posted and acknowledged independently.
+ * <p>
+ * Each chunk covers the time window between two cut points and holds the states
+ * and events of that window; entries running across a cut are clipped so the
+ * durations of all chunks add up to the original ones. Chunks link back to the
+ * original batch through their parent batch id, and their own batch ids are derived
+ * from it, so splitting a cached batch again yields the same ids and chunks already
+ * acknowledged are not posted twice.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ActivityInfoSplitter {
+    public static final int DEFAULT_MAX_PAYLOAD_SIZE = 256 * 1024;
+    // smallest budget accepted, below this a single entry would not fit
+    private static final int MIN_PAYLOAD_SIZE = 4 * 1024;
+
+    private final ObjectWriter writer;
+    private final int maxPayloadSize;
+
+    /**
+     * Splitter constructor. Payload sizes are measured as posted by the API client.
+     *
+     * @param maxPayloadSize the maximum payload size (in bytes)
+     */
+    public ActivityInfoSplitter(int maxPayloadSize) {
+        this.writer = CodealikeJson.getWriter();
+        this.maxPayloadSize = Math.max(MIN_PAYLOAD_SIZE, maxPayloadSize);
+    }
+
+    public int getMaxPayloadSize() {
+        return maxPayloadSize;
+    }
+
+    /**
+     * Split a batch into chunks that fit the payload budget.
+     *
+     * @param info the activity batch
+     * @return the chunks, or a list with the batch itself if it already fits
+     * @throws JsonProcessingException if the batch can not be serialized
+     */
+    public List<ActivityInfo> split(ActivityInfo info) throws JsonProcessingException {
+        if (size(info) <= maxPayloadSize) {
+            return Collections.singletonList(info);
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        if (info.getStates() != null) {
+            info.getStates().forEach(entry -> entries.add(new Entry(entry, true)));
+        }
+        if (info.getEvents() != null) {
+            info.getEvents().forEach(entry -> entries.add(new Entry(entry, false)));
+        }
+        if (entries.size() <= 1) {
+            return Collections.singletonList(info);
+        }
+        entries.sort(Comparator.comparing(entry -> entry.start(info.getBatchStart()),
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        // envelope with no entries, measured with the largest chunk fields it can get
+        ActivityInfo envelope = createChunk(info, info.getBatchStart(), info.getBatchEnd(), Integer.MAX_VALUE, Integer.MAX_VALUE);
+        envelope.setStates(new LinkedList<>());
+        envelope.setEvents(new LinkedList<>());
+        int envelopeSize = size(envelope);
+        int budget = maxPayloadSize - envelopeSize;
+
+        List<Window> windows = new ArrayList<>();
+        Window current = new Window(info.getBatchStart());
+        for (Entry entry : entries) {
+            DateTime start = entry.start(info.getBatchStart());
+            int entrySize = cost(envelope, envelopeSize, entry.info);
+            if (current.size + entrySize > budget && !current.entries.isEmpty()
+                    && start != null && current.start != null && start.isAfter(current.start)) {
+                Window next = new Window(start);
+                current.cut(start, next, envelope, envelopeSize);
+                windows.add(current);
+                current = next;
+            }
+            current.add(entry, entrySize);
+        }
+        current.end = info.getBatchEnd();
+        windows.add(current);
+
+        if (windows.size() == 1) {
+            return Collections.singletonList(info);
+        }
+
+        List<ActivityInfo> chunks = new ArrayList<>(windows.size());
+        for (int i = 0; i < windows.size(); i++) {
+            Window window = windows.get(i);
+            ActivityInfo chunk = createChunk(info, window.start, window.end, i, windows.size());
+            List<ActivityEntryInfo> states = new LinkedList<>();
+            List<ActivityEntryInfo> events = new LinkedList<>();
+            for (Entry entry : window.entries) {
+                (entry.state ? states : events).add(entry.info);
+            }
+            chunk.setStates(states);
+            chunk.setEvents(events);
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Get the batch id of a chunk. Derived from the original batch id, so it is
+     * the same every time the batch is split with the same budget.
+     *
+     * @param parentBatchId the original batch id
+     * @param index         the chunk index
+     * @param count         the number of chunks
+     * @return the chunk batch id
+     */
+    public static UUID chunkBatchId(UUID parentBatchId, int index, int count) {
+        return UUID.nameUUIDFromBytes((parentBatchId + "/" + index + "/" + count).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int size(Object value) throws JsonProcessingException {
+        return writer.writeValueAsBytes(value).length;
+    }
+
+    /*
+     *  cost:
+     *  Measures what an entry adds to the payload once nested in a batch
+     *  (indentation included), plus the separator from the previous entry.
+     */
+    private int cost(ActivityInfo envelope, int envelopeSize, ActivityEntryInfo entry) throws JsonProcessingException {
+        envelope.setStates(Collections.singletonList(entry));
+        int size = size(envelope);
+        envelope.setStates(new LinkedList<>());
+        return size - envelopeSize + 2;
+    }
+
+    private static ActivityInfo createChunk(ActivityInfo info, DateTime start, DateTime end, int index, int count) {
+        UUID parentBatchId = info.getBatchId();
+        UUID batchId = parentBatchId != null ? chunkBatchId(parentBatchId, index, count) : UUID.randomUUID();
+        ActivityInfo chunk = new ActivityInfo(info.getInstance(), info.getSolutionId(), batchId, start, end);
+        chunk.setMachine(info.getMachine());
+        chunk.setClient(info.getClient());
+        chunk.setExtension(info.getExtension());
+        chunk.setProjects(info.getProjects());
+        chunk.setParentBatchId(parentBatchId);
+        chunk.setChunkIndex(index);
+        chunk.setChunkCount(count);
+        return chunk;
+    }
+
+    /*
+     *  clip:
+     *  Copies an entry limited to the given time window, with its
+     *  duration recomputed for that window.
+     */
+    private static ActivityEntryInfo clip(ActivityEntryInfo entry, DateTime start, DateTime end) {
+        ActivityEntryInfo clipped = new ActivityEntryInfo(entry.getParentId());
+        clipped.setType(entry.getType());
+        clipped.setContext(entry.getContext());
+        clipped.setStart(start);
+        clipped.setEnd(end);
+        clipped.setDuration(new Period(start, end));
+        return clipped;
+    }
+
+    private static class Entry {
+        private final ActivityEntryInfo info;
+        private final boolean state;
+
+        private Entry(ActivityEntryInfo info, boolean state) {
+            this.info = info;
+            this.state = state;
+        }
+
+        private DateTime start(DateTime fallback) {
+            return info.getStart() != null ? info.getStart() : fallback;
+        }
+    }
+
+    private class Window {
+        private final DateTime start;
+        private DateTime end;
+        private final List<Entry> entries = new ArrayList<>();
+        private int size;
+
+        private Window(DateTime start) {
+            this.start = start;
+        }
+
+        private void add(Entry entry, int entrySize) {
+            entries.add(entry);
+            size += entrySize;
+        }
+
+        /*
+         *  cut:
+         *  Closes the window at the given time. Entries still running at
+         *  that time are clipped and their remainder moved to the next window.
+         */
+        private void cut(DateTime at, Window next, ActivityInfo envelope, int envelopeSize) throws JsonProcessingException {
+            end = at;
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                DateTime entryStart = entry.info.getStart();
+                DateTime entryEnd = entry.info.getEnd();
+                if (entryStart == null || entryEnd == null || !entryEnd.isAfter(at) || !entryStart.isBefore(at)) {
+                    continue;
+                }
+                entries.set(i, new Entry(clip(entry.info, entryStart, at), entry.state));
+                Entry remainder = new Entry(clip(entry.info, at, entryEnd), entry.state);
+                next.add(remainder, cost(envelope, envelopeSize, remainder.info));
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.serialization;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Shared JSON mapper and writer configured for Codealike API entities.
+ * Has no dependency on the IDE, so it can be used by headless tools.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public final class CodealikeJson {
+    private static final ObjectMapper MAPPER = createMapper();
+    private static final ObjectWriter WRITER = MAPPER.writer().withDefaultPrettyPrinter();
+
+    private CodealikeJson() {
+    }
+
+    /**
+     * Get the shared object mapper.
+     *
+     * @return the {@link ObjectMapper} instance
+     */
+    public static ObjectMapper getMapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Get the shared object writer (pretty printed).
+     *
+     * @return the {@link ObjectWriter} instance
+     */
+    public static ObjectWriter getWriter() {
+        return WRITER;
+    }
+
+    private static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JodaPeriodModule());
+        mapper.setSerializationInclusion(Include.NON_NULL);
+        return mapper;
+    }
+}
@@ -3,24 +3,26 @@
  */
 package com.codealike.client.core.internal.serialization;
 
-import com.codealike.client.core.internal.startup.PluginContext;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
 import java.io.IOException;
 
 public class DateTimeDeserializer extends JsonDeserializer<DateTime> {
 
+    public static final DateTimeFormatter PARSER = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
     @Override
     public DateTime deserialize(JsonParser jsonParser, DeserializationContext context)
             throws IOException, JsonProcessingException {
 
-        DateTimeFormatter formatter = PluginContext.getInstance().getDateTimeParser();
+        DateTimeFormatter formatter = PARSER;
 
         if (jsonParser.getCurrentToken() == JsonToken.VALUE_STRING) {
             String date = jsonParser.getValueAsString();
@@ -3,23 +3,29 @@
  */
 package com.codealike.client.core.internal.serialization;
 
-import com.codealike.client.core.internal.startup.PluginContext;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.DateTimeFormatterBuilder;
 
 import java.io.IOException;
 
 public class DateTimeSerializer extends JsonSerializer<DateTime> {
 
+    public static final DateTimeFormatter FORMATTER = new DateTimeFormatterBuilder().appendYear(4, 4).appendLiteral("-").
+            appendMonthOfYear(2).appendLiteral("-").appendDayOfMonth(2).
+            appendLiteral("T").appendHourOfDay(2).appendLiteral(":").
+            appendMinuteOfHour(2).appendLiteral(":").appendSecondOfMinute(2).
+            appendLiteral(".").appendMillisOfSecond(3).appendLiteral("Z").toFormatter();
 
     @Override
     public void serialize(DateTime dateTime, JsonGenerator jgen, SerializerProvider provider) throws IOException,
             JsonProcessingException {
 //		jgen.writeString(String.format("/Date(%d)/", dateTime.getMillis()));
-        String formattedDate = PluginContext.getInstance().getDateTimeFormatter().print(dateTime);
+        String formattedDate = FORMATTER.print(dateTime);
         jgen.writeString(formattedDate);
     }
 
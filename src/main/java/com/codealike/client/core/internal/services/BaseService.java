@@ -3,10 +3,11 @@
  */
 package com.codealike.client.core.internal.services;
 
-import java.util.ArrayList;
+import com.codealike.client.core.internal.utils.PluginScheduler;
+
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * Base abstract class to push events.
@@ -15,11 +16,11 @@ import java.util.concurrent.Executors;
  * @version 1.6.0.0
  */
 public abstract class BaseService implements Runnable {
-    // Single thread executor to run all tasks in a single queue
-    private final ExecutorService ex = Executors.newSingleThreadExecutor();
+    // Scheduler lane to run all tasks in a single queue
+    private final Executor ex = PluginScheduler.getInstance().lane(getClass().getSimpleName());
 
-    // Array with registered listeners
-    private final List<ServiceListener> serviceListeners = new ArrayList<ServiceListener>();
+    // Array with registered listeners, may change while an event is published
+    private final List<ServiceListener> serviceListeners = new CopyOnWriteArrayList<ServiceListener>();
 
     /**
      * Add a listener to the registered listener array for execution.
@@ -30,11 +31,20 @@ public abstract class BaseService implements Runnable {
         serviceListeners.add(serviceListener);
     }
 
+    /**
+     * Remove a listener from the registered listener array.
+     *
+     * @param serviceListener the listener to remove.
+     */
+    public void removeListener(ServiceListener serviceListener) {
+        serviceListeners.remove(serviceListener);
+    }
+
     /**
      * Publish the event to the executor.
      */
     protected void publishEvent() {
-        ex.submit(this);
+        ex.execute(this);
     }
 
     @Override
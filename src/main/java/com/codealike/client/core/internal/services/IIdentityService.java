@@ -6,6 +6,8 @@ package com.codealike.client.core.internal.services;
 import com.codealike.client.core.internal.model.Profile;
 import com.codealike.client.core.internal.model.TrackActivity;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Created by Daniel on 11/16/2016.
  */
@@ -14,6 +16,8 @@ public interface IIdentityService {
 
     boolean login(String identity, String token, boolean storeCredentials, boolean rememberMe);
 
+    CompletableFuture<Boolean> loginAsync(String identity, String token, boolean storeCredentials, boolean rememberMe);
+
     boolean tryLoginWithStoredCredentials();
 
     String getIdentity();
@@ -5,19 +5,23 @@ package com.codealike.client.core.internal.services;
 
 import com.codealike.client.core.api.ApiClient;
 import com.codealike.client.core.api.ApiResponse;
+import com.codealike.client.core.api.RetryPolicy;
 import com.codealike.client.core.internal.dto.ProfileInfo;
 import com.codealike.client.core.internal.dto.UserConfigurationInfo;
 import com.codealike.client.core.internal.model.Profile;
+import com.codealike.client.core.internal.model.SessionSnapshot;
 import com.codealike.client.core.internal.model.TrackActivity;
 import com.codealike.client.core.internal.startup.PluginContext;
 import com.codealike.client.core.internal.utils.Configuration;
 import com.codealike.client.core.internal.utils.LogManager;
+import com.codealike.client.core.internal.utils.SessionStore;
 import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
 
 import java.security.KeyManagementException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Identity service class.
@@ -27,14 +31,32 @@ import java.security.KeyManagementException;
  */
 public class IdentityService extends BaseService {
 
+    // Deadline of each login request (in milliseconds)
+    private static final long LOGIN_TIMEOUT = 10000;
+
     private static IdentityService _instance;
-    private boolean isAuthenticated;
+    private volatile boolean isAuthenticated;
+    // authenticated from stored credentials, not yet confirmed by the server
+    private volatile boolean provisional;
     private String identity;
     private String token;
     private Profile profile;
+    private ProfileInfo profileInfo;
     private boolean credentialsStored;
     private TrackActivity trackActivities;
 
+    /**
+     * Outcome of a login.
+     */
+    public enum LoginResult {
+        Authenticated,
+        // the server rejected the credentials
+        Rejected,
+        // the server could not be reached, the credentials may still be valid
+        Unreachable,
+        NoCredentials
+    }
+
     public IdentityService() {
         this.identity = "";
         this.isAuthenticated = false;
@@ -54,62 +76,186 @@ public class IdentityService extends BaseService {
         return isAuthenticated;
     }
 
+    public boolean isProvisional() {
+        return provisional;
+    }
+
     public boolean login(String identity, String token, boolean storeCredentials, boolean rememberMe) {
+        return loginAsync(identity, token, storeCredentials, rememberMe).join();
+    }
+
+    public CompletableFuture<Boolean> loginAsync(String identity, String token, boolean storeCredentials, boolean rememberMe) {
+        return authenticateAsync(identity, token, storeCredentials, rememberMe)
+                .thenApply(result -> result == LoginResult.Authenticated);
+    }
+
+    /**
+     * Start a session from the stored credentials and the snapshot of the last confirmed
+     * session, without contacting the server, so tracking can start right away. The session
+     * is provisional until a login with the same identity confirms it.
+     *
+     * @return true if a provisional session was started
+     */
+    public boolean startProvisionalSession() {
+        String[] credentials = loadStoredCredentials();
+        if (credentials == null || this.isAuthenticated) {
+            return false;
+        }
+        Configuration configuration = PluginContext.getInstance().getConfiguration();
+        SessionSnapshot snapshot = configuration.getSessionStore().load(credentials[0], credentials[1]);
+        if (snapshot == null || snapshot.getTrackActivity() == null) {
+            return false;
+        }
+
+        this.identity = credentials[0];
+        this.token = credentials[1];
+        this.trackActivities = snapshot.getTrackActivity();
+        if (snapshot.getProfile() != null) {
+            setProfile(snapshot.getProfile());
+        }
+        configuration.restorePluginSettings(snapshot.getPluginSettings());
+        this.provisional = true;
+        this.isAuthenticated = true;
+        publishEvent();
+        return true;
+    }
+
+    /**
+     * End the current session, keeping stored credentials. Used when a provisional
+     * session can not be confirmed.
+     */
+    public void endSession() {
+        if (!this.isAuthenticated) {
+            return;
+        }
+
+        // stores activity in progress, it is sent once a session is confirmed
+        PluginContext.getInstance().getTrackingService().disableTracking();
+
+        this.isAuthenticated = false;
+        this.provisional = false;
+        publishEvent();
+    }
+
+    /**
+     * End the current session because the server rejected its credentials. The
+     * session snapshot is removed too, so the rejected credentials do not start
+     * a provisional session on the next startup.
+     *
+     * @return a future completed once the snapshot is removed
+     */
+    public CompletableFuture<Boolean> rejectSession() {
+        return rejectSession(PluginContext.getInstance().getConfiguration().getSessionStore());
+    }
+
+    CompletableFuture<Boolean> rejectSession(SessionStore sessionStore) {
+        CompletableFuture<Boolean> deleted = sessionStore.delete();
+        endSession();
+        return deleted;
+    }
+
+    /**
+     * Log in with the given credentials. Profile and configuration are fetched
+     * together once the credentials are accepted.
+     *
+     * @param identity         the user identity
+     * @param token            the user token
+     * @param storeCredentials true to update stored credentials
+     * @param rememberMe       true to store credentials, false to remove them
+     * @return a future completed with the login outcome
+     */
+    public CompletableFuture<LoginResult> authenticateAsync(String identity, String token, boolean storeCredentials, boolean rememberMe) {
         Notification note = new Notification("CodealikeApplicationComponent.Notifications",
                 "Codealike",
                 "Codealike  is connecting...",
                 NotificationType.INFORMATION);
         Notifications.Bus.notify(note);
 
-        if (this.isAuthenticated) {
+        if (this.isAuthenticated && !this.provisional) {
             publishEvent();
-            return true;
+            return CompletableFuture.completedFuture(LoginResult.Authenticated);
         }
+
+        ApiClient apiClient;
         try {
-            ApiClient apiClient = ApiClient.tryCreateNew(identity, token);
-            ApiResponse<Void> response = apiClient.tokenAuthenticate();
-
-            if (response.success()) {
-
-                this.identity = identity;
-                this.token = token;
-                if (storeCredentials) {
-                    if (rememberMe) {
-                        storeCredentials(identity, token);
-                    } else {
-                        removeStoredCredentials();
-                    }
-                }
-                try {
-                    ApiResponse<ProfileInfo> profileResponse = apiClient.getProfile(identity);
-                    if (profileResponse.success()) {
-                        ProfileInfo profile = profileResponse.getObject();
-                        this.profile = new Profile(this.identity, profile.getFullName(), profile.getDisplayName(),
-                                profile.getAddress(), profile.getState(), profile.getCountry(), profile.getAvatarUri(), profile.getEmail());
-                    }
-                } catch (Exception e) {
-                    LogManager.INSTANCE.logError(e, "Could not get user profile.");
+            apiClient = ApiClient.tryCreateNew(identity, token).withTimeout(LOGIN_TIMEOUT);
+        } catch (KeyManagementException e) {
+            LogManager.INSTANCE.logError(e, "Could not log in. There was a problem with SSL configuration.");
+            return CompletableFuture.completedFuture(LoginResult.Unreachable);
+        }
+
+        return apiClient.tokenAuthenticateAsync().thenCompose(response -> {
+            if (!response.success()) {
+                return CompletableFuture.completedFuture(RetryPolicy.isRetryable(response.getStatus())
+                        ? LoginResult.Unreachable : LoginResult.Rejected);
+            }
+
+            // confirming a provisional session only needs listeners notified if settings changed
+            boolean confirming = this.provisional && identity.equals(this.identity);
+            TrackActivity previousTrackActivity = this.trackActivities;
+
+            this.identity = identity;
+            this.token = token;
+            if (storeCredentials) {
+                if (rememberMe) {
+                    storeCredentials(identity, token);
+                } else {
+                    removeStoredCredentials();
                 }
+            }
 
-                try {
-                    ApiResponse<UserConfigurationInfo> configResponse = apiClient.getUserConfiguration(identity);
-                    if (configResponse.success()) {
-                        UserConfigurationInfo config = configResponse.getObject();
-                        this.trackActivities = config.getTrackActivities();
-                    }
-                } catch (Exception e) {
-                    LogManager.INSTANCE.logError(e, "Could not get user configuration");
+            // profile and configuration do not depend on each other, fetch them together
+            CompletableFuture<Void> profileLoaded = apiClient.getProfileAsync(identity).thenAccept(profileResponse -> {
+                if (profileResponse.success()) {
+                    setProfile(profileResponse.getObject());
+                }
+            }).exceptionally(e -> {
+                LogManager.INSTANCE.logError(e, "Could not get user profile.");
+                return null;
+            });
+
+            CompletableFuture<Void> configurationLoaded = apiClient.getUserConfigurationAsync(identity).thenAccept(configResponse -> {
+                if (configResponse.success()) {
+                    UserConfigurationInfo config = configResponse.getObject();
+                    this.trackActivities = config.getTrackActivities();
                 }
+            }).exceptionally(e -> {
+                LogManager.INSTANCE.logError(e, "Could not get user configuration");
+                return null;
+            });
 
+            return CompletableFuture.allOf(profileLoaded, configurationLoaded).thenApply(loaded -> {
                 this.isAuthenticated = true;
-                publishEvent();
-                return true;
-            }
+                this.provisional = false;
+                storeSessionSnapshot();
+                if (!confirming || previousTrackActivity != this.trackActivities) {
+                    publishEvent();
+                }
+                return LoginResult.Authenticated;
+            });
+        });
+    }
 
-        } catch (KeyManagementException e) {
-            LogManager.INSTANCE.logError(e, "Could not log in. There was a problem with SSL configuration.");
+    private void setProfile(ProfileInfo profile) {
+        this.profileInfo = profile;
+        this.profile = new Profile(this.identity, profile.getFullName(), profile.getDisplayName(),
+                profile.getAddress(), profile.getState(), profile.getCountry(), profile.getAvatarUri(), profile.getEmail());
+    }
+
+    /*
+     *  storeSessionSnapshot:
+     *  Stores the confirmed session so next startup can begin from it,
+     *  only when the credentials in use are the stored ones
+     */
+    private void storeSessionSnapshot() {
+        Configuration configuration = PluginContext.getInstance().getConfiguration();
+        if (this.trackActivities == null || !(this.identity + "/" + this.token).equals(configuration.getUserToken())) {
+            return;
         }
-        return false;
+
+        SessionSnapshot snapshot = new SessionSnapshot(this.identity, this.profileInfo, this.trackActivities,
+                configuration.getPluginSettings());
+        configuration.getSessionStore().save(snapshot, this.token);
     }
 
     private void storeCredentials(String identity, String token) {
@@ -128,6 +274,7 @@ public class IdentityService extends BaseService {
         Configuration configuration = PluginContext.getInstance().getConfiguration();
         configuration.setUserToken(null);
         configuration.saveCurrentGlobalSettings();
+        configuration.getSessionStore().delete();
 
         // remove fallback ones also!
         PropertiesComponent propertiesComponent = PropertiesComponent.getInstance();
@@ -135,7 +282,33 @@ public class IdentityService extends BaseService {
         propertiesComponent.unsetValue("codealike.token");
     }
 
+    public boolean hasStoredCredentials() {
+        return loadStoredCredentials() != null;
+    }
+
     public boolean tryLoginWithStoredCredentials() {
+        return tryLoginWithStoredCredentialsAsync().join() == LoginResult.Authenticated;
+    }
+
+    /**
+     * Log in with the stored credentials, confirming the provisional session if there is one.
+     *
+     * @return a future completed with the login outcome
+     */
+    public CompletableFuture<LoginResult> tryLoginWithStoredCredentialsAsync() {
+        String[] credentials = loadStoredCredentials();
+        if (credentials == null) {
+            return CompletableFuture.completedFuture(LoginResult.NoCredentials);
+        }
+        return authenticateAsync(credentials[0], credentials[1], false, false);
+    }
+
+    /*
+     *  loadStoredCredentials:
+     *  Returns the stored identity and token, moving the ones found in
+     *  the legacy store to the global settings, or null if there are none
+     */
+    private String[] loadStoredCredentials() {
         Configuration configuration = PluginContext.getInstance().getConfiguration();
         String identity;
         String token;
@@ -163,10 +336,10 @@ public class IdentityService extends BaseService {
             token = split[1];
         }
 
-        if (identity != "" && token != "")
-            return login(identity, token, false, false);
+        if (!identity.isEmpty() && !token.isEmpty())
+            return new String[]{identity, token};
 
-        return false;
+        return null;
     }
 
     public String getIdentity() {
@@ -199,6 +372,7 @@ public class IdentityService extends BaseService {
         PluginContext.getInstance().getTrackingService().flushRecorder(this.identity, this.token);
 
         this.isAuthenticated = false;
+        this.provisional = false;
         this.identity = null;
         this.token = null;
         removeStoredCredentials();
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.services;
+
+import com.codealike.client.core.api.ApiClient;
+import com.codealike.client.core.api.ConnectivityMonitor;
+import com.codealike.client.core.internal.model.ProjectSettings;
+import com.codealike.client.core.internal.utils.LocalIOExecutor;
+import com.codealike.client.core.internal.utils.LogManager;
+import com.codealike.client.core.internal.utils.PluginScheduler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Durable queue of project contexts waiting to be registered in the server.
+ * <p>
+ * Project ids are created locally and tracked right away; their registration is
+ * queued here and stored in a file, so it survives restarts and offline periods.
+ * Registrations queued close together are sent in a single pass, once a session
+ * is active and the API is not offline. Failed registrations are tried again
+ * with a growing delay.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ProjectRegistrationQueue {
+    // time registrations are gathered before a pass (in milliseconds)
+    public static final long BATCH_DELAY = 2000;
+    private static final long MAX_RETRY_DELAY = 30 * 60 * 1000;
+    private static final int MAX_ATTEMPTS = 20;
+
+    private final File file;
+    private final Function<ProjectSettings, CompletableFuture<Boolean>> register;
+    private final BooleanSupplier canRegister;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ConnectivityMonitor.Listener connectivityListener = (from, to) -> {
+        if (to == ConnectivityMonitor.State.Online) {
+            schedule();
+        }
+    };
+
+    private final Map<UUID, Pending> pending = new LinkedHashMap<>();
+    private PluginScheduler.ScheduledTask nextPass;
+    private boolean closed;
+    private boolean passInProgress;
+    private long retryDelay = BATCH_DELAY;
+
+    // metrics
+    private long registered;
+    private long failedAttempts;
+    private long dropped;
+
+    /**
+     * Queue constructor. Registrations stored in the file are loaded, and sent
+     * once {@link #schedule()} is called.
+     *
+     * @param file        the file storing pending registrations
+     * @param register    registers a project context, completed with true if it is registered
+     * @param canRegister tells if registrations can be sent (e.g. a session is active)
+     */
+    public ProjectRegistrationQueue(File file, Function<ProjectSettings, CompletableFuture<Boolean>> register,
+                                    BooleanSupplier canRegister) {
+        this.file = file;
+        this.register = register;
+        this.canRegister = canRegister;
+        load();
+
+        ApiClient.getConnectivity().addListener(connectivityListener);
+    }
+
+    /**
+     * Queue the registration of a project context. Never blocks on the network.
+     *
+     * @param projectId   the project id
+     * @param projectName the project name
+     */
+    public void enqueue(UUID projectId, String projectName) {
+        synchronized (this) {
+            if (pending.containsKey(projectId)) {
+                return;
+            }
+            pending.put(projectId, new Pending(projectId, projectName));
+            persist();
+            retryDelay = BATCH_DELAY;
+        }
+        schedule();
+    }
+
+    /**
+     * Schedule a pass over pending registrations, unless one is already scheduled
+     * sooner. Called when registrations may succeed again, e.g. after login.
+     */
+    public synchronized void schedule() {
+        if (pending.isEmpty() || closed) {
+            return;
+        }
+        long delay = Math.min(retryDelay, BATCH_DELAY);
+        if (nextPass != null && !nextPass.isDone()) {
+            if (nextPass.getDelay(TimeUnit.MILLISECONDS) <= delay) {
+                return;
+            }
+            nextPass.cancel();
+        }
+        nextPass = PluginScheduler.getInstance().schedule("project registration", this::pass, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized boolean isPending(UUID projectId) {
+        return pending.containsKey(projectId);
+    }
+
+    /**
+     * Stop sending registrations. Pending ones stay stored for next start.
+     */
+    public synchronized void close() {
+        ApiClient.getConnectivity().removeListener(connectivityListener);
+        closed = true;
+        if (nextPass != null) {
+            nextPass.cancel();
+            nextPass = null;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d pending, %d registered, %d failed attempts, %d dropped",
+                pending.size(), registered, failedAttempts, dropped);
+    }
+
+    /*
+     *  pass:
+     *  Sends every pending registration together and schedules the next
+     *  pass for the ones that failed.
+     */
+    private void pass() {
+        List<Pending> batch;
+        synchronized (this) {
+            if (passInProgress || pending.isEmpty()) {
+                return;
+            }
+            if (!canRegister.getAsBoolean() || ApiClient.getConnectivity().isOffline()) {
+                // tried again on login or when the API is back online
+                return;
+            }
+            passInProgress = true;
+            batch = new ArrayList<>(pending.values());
+        }
+
+        List<CompletableFuture<Void>> sent = new ArrayList<>(batch.size());
+        for (Pending registration : batch) {
+            CompletableFuture<Boolean> result;
+            try {
+                result = register.apply(registration.settings);
+            } catch (Exception e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            sent.add(result.handle((success, e) -> {
+                onRegistered(registration, e == null && Boolean.TRUE.equals(success));
+                return null;
+            }));
+        }
+
+        CompletableFuture.allOf(sent.toArray(new CompletableFuture[0])).whenComplete((done, e) -> {
+            synchronized (this) {
+                passInProgress = false;
+                persist();
+                if (!pending.isEmpty()) {
+                    retryDelay = Math.min(MAX_RETRY_DELAY, retryDelay * 2);
+                    if (!closed) {
+                        nextPass = PluginScheduler.getInstance().schedule("project registration", this::pass,
+                                retryDelay, TimeUnit.MILLISECONDS);
+                    }
+                } else {
+                    retryDelay = BATCH_DELAY;
+                }
+            }
+        });
+    }
+
+    private synchronized void onRegistered(Pending registration, boolean success) {
+        if (success) {
+            pending.remove(registration.settings.getProjectId());
+            registered++;
+            return;
+        }
+        failedAttempts++;
+        if (++registration.attempts >= MAX_ATTEMPTS) {
+            pending.remove(registration.settings.getProjectId());
+            dropped++;
+            LogManager.INSTANCE.logWarn(String.format("Could not register project %s (%s), giving up after %d attempts.",
+                    registration.settings.getProjectName(), registration.settings.getProjectId(), registration.attempts));
+        }
+    }
+
+    /*
+     *  persist:
+     *  Stores pending registrations, queued in the local I/O executor
+     */
+    private void persist() {
+        List<ProjectSettings> registrations = new ArrayList<>(pending.size());
+        pending.values().forEach(registration -> registrations.add(registration.settings));
+        try {
+            LocalIOExecutor.getInstance().write(file, mapper.writeValueAsBytes(registrations));
+        } catch (JsonProcessingException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not store pending project registrations.");
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            List<ProjectSettings> registrations = mapper.readValue(file, new TypeReference<List<ProjectSettings>>() {
+            });
+            for (ProjectSettings settings : registrations) {
+                if (settings.getProjectId() != null) {
+                    pending.put(settings.getProjectId(), new Pending(settings.getProjectId(), settings.getProjectName()));
+                }
+            }
+        } catch (IOException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not read pending project registrations.");
+        }
+    }
+
+    private static class Pending {
+        private final ProjectSettings settings;
+        private int attempts;
+
+        private Pending(UUID projectId, String projectName) {
+            this.settings = new ProjectSettings();
+            this.settings.setProjectId(projectId);
+            this.settings.setProjectName(projectName);
+        }
+    }
+}
@@ -7,7 +7,9 @@ import com.codealike.client.core.internal.model.TrackedProjectManager;
 import com.codealike.client.core.internal.startup.PluginContext;
 import com.codealike.client.core.internal.tracking.ActivitiesRecorder.FlushResult;
 import com.codealike.client.core.internal.tracking.StateTracker;
+import com.codealike.client.core.internal.utils.LocalIOExecutor;
 import com.codealike.client.core.internal.utils.LogManager;
+import com.codealike.client.core.internal.utils.PluginScheduler;
 import com.codealike.client.core.internal.utils.TrackingConsole;
 import com.google.common.collect.BiMap;
 import com.intellij.notification.Notification;
@@ -18,8 +20,8 @@ import com.intellij.openapi.project.Project;
 import org.joda.time.DateTime;
 
 import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,12 +31,20 @@ import java.util.concurrent.TimeUnit;
  * @version 1.6.0.0
  */
 public class TrackingService extends BaseService {
+    // max time to wait for local writes on shutdown (in milliseconds)
+    private static final long SHUTDOWN_DRAIN_TIMEOUT = 2000;
+    private static final long FLUSH_THREAD_KEEP_ALIVE = 30000;
     private static TrackingService _instance;
 
     private TrackedProjectManager trackedProjectManager;
-    private ScheduledExecutorService flushExecutor = null;
+    private PluginScheduler.ScheduledTask flushTask = null;
+    // periodic and requested flushes run one at a time, on their own thread: they
+    // block on the network (retries included), so they stay off the shared scheduler
+    // workers used by local I/O and service events
+    private final ThreadPoolExecutor flushExecutor = createFlushExecutor();
     private StateTracker tracker;
-    private boolean isTracking;
+    // read without the lock, e.g. by project close and flush requests
+    private volatile boolean isTracking;
     private PluginContext context;
 
     public TrackingService() {
@@ -54,7 +64,7 @@ public class TrackingService extends BaseService {
         return _instance;
     }
 
-    public void startTracking() {
+    public synchronized void startTracking() {
         this.tracker.startTracking();
 
         startFlushExecutor();
@@ -75,10 +85,8 @@ public class TrackingService extends BaseService {
     }
 
     private void startFlushExecutor() {
-        if (this.flushExecutor != null)
+        if (this.flushTask != null)
             return;
-
-        this.flushExecutor = Executors.newScheduledThreadPool(1);
         Runnable flushPeriodicTask = new Runnable() {
 
             @Override
@@ -93,7 +101,34 @@ public class TrackingService extends BaseService {
         };
 
         int flushInterval = this.context.getConfiguration().getFlushInterval();
-        this.flushExecutor.scheduleAtFixedRate(flushPeriodicTask, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        this.flushTask = PluginScheduler.getInstance().scheduleWithFixedDelay("activity flush",
+                () -> submitFlush(flushPeriodicTask), flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     *  submitFlush:
+     *  Runs a flush on the flush thread. Once the IDE exits the batch in
+     *  progress is stored by shutdown, so later flushes are skipped.
+     */
+    private synchronized void submitFlush(Runnable flush) {
+        if (!this.flushExecutor.isShutdown()) {
+            this.flushExecutor.execute(flush);
+        }
+    }
+
+    /*
+     *  createFlushExecutor:
+     *  A single daemon thread, created on demand and ended when idle.
+     */
+    private static ThreadPoolExecutor createFlushExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, FLUSH_THREAD_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "Codealike activity flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     private void flushTrackingInformation() {
@@ -152,11 +187,11 @@ public class TrackingService extends BaseService {
         }
     }
 
-    public void stopTracking(boolean propagate) {
+    public synchronized void stopTracking(boolean propagate) {
         this.tracker.stopTracking();
-        if (this.flushExecutor != null) {
-            this.flushExecutor.shutdownNow();
-            this.flushExecutor = null;
+        if (this.flushTask != null) {
+            this.flushTask.cancel();
+            this.flushTask = null;
         }
 
         this.trackedProjectManager.stopTracking();
@@ -167,8 +202,10 @@ public class TrackingService extends BaseService {
         }
     }
 
-    public void enableTracking() {
-        if (context.isAuthenticated()) {
+    public synchronized void enableTracking() {
+        // called for every project opened, listeners are registered only once, even
+        // when the re-attach on login and a project startup activity race
+        if (context.isAuthenticated() && !this.isTracking) {
             startTracking();
 
             Notification note = new Notification("CodealikeApplicationComponent.Notifications",
@@ -179,12 +216,13 @@ public class TrackingService extends BaseService {
         }
     }
 
-    public void disableTracking() {
+    public synchronized void disableTracking() {
         if (context.isAuthenticated()) {
             stopTracking(true);
 
-            // flush last information before leaving
-            flushTrackingInformation();
+            // store last information before leaving, it will be
+            // sent by the next flush so closing never waits on network
+            tracker.persist();
 
             Notification note = new Notification("CodealikeApplicationComponent.Notifications",
                     "Codealike",
@@ -194,6 +232,26 @@ public class TrackingService extends BaseService {
         }
     }
 
+    /**
+     * Stop tracking and store the batch in progress in the local cache.
+     * Used when the IDE exits, so it never waits on the network: a flush
+     * in progress is left to finish on its daemon thread.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (this.isTracking) {
+                stopTracking(false);
+                tracker.persist();
+            }
+            this.flushExecutor.shutdown();
+        }
+
+        // give queued local writes a chance to complete before exit
+        if (!LocalIOExecutor.getInstance().drain(SHUTDOWN_DRAIN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            LogManager.INSTANCE.logWarn("Not all activity data could be stored locally before exit.");
+        }
+    }
+
     public synchronized void startTracking(Project project, DateTime workspaceInitDate) {
         if (!project.isOpen()) {
             return;
@@ -212,11 +270,8 @@ public class TrackingService extends BaseService {
     }
 
     private void startTrackingUnassignedProject() {
-        try {
-            PluginContext.getInstance().registerProjectContext(PluginContext.UNASSIGNED_PROJECT, "Unassigned");
-        } catch (Exception e) {
-            LogManager.INSTANCE.logWarn("Could not track unassigned project.");
-        }
+        // nothing waits for the registration, so it does not block tracking start
+        PluginContext.getInstance().getRegistrationQueue().enqueue(PluginContext.UNASSIGNED_PROJECT, "Unassigned");
     }
 
     public boolean isTracked(Project project) {
@@ -249,7 +304,7 @@ public class TrackingService extends BaseService {
 
     public void flushRecorder(final String identity, final String token) {
         if (this.isTracking) {
-            this.flushExecutor.execute(new Runnable() {
+            submitFlush(new Runnable() {
 
                 @Override
                 public void run() {
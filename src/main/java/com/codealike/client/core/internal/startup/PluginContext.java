@@ -5,18 +5,19 @@ package com.codealike.client.core.internal.startup;
 
 import com.codealike.client.core.api.ApiClient;
 import com.codealike.client.core.api.ApiResponse;
-import com.codealike.client.core.internal.dto.PluginSettingsInfo;
-import com.codealike.client.core.internal.dto.SolutionContextInfo;
 import com.codealike.client.core.internal.dto.Version;
 import com.codealike.client.core.internal.model.ProjectSettings;
-import com.codealike.client.core.internal.serialization.JodaPeriodModule;
+import com.codealike.client.core.internal.serialization.CodealikeJson;
+import com.codealike.client.core.internal.serialization.DateTimeDeserializer;
+import com.codealike.client.core.internal.serialization.DateTimeSerializer;
 import com.codealike.client.core.internal.services.IdentityService;
+import com.codealike.client.core.internal.services.ProjectRegistrationQueue;
 import com.codealike.client.core.internal.services.TrackingService;
 import com.codealike.client.core.internal.tracking.code.ContextCreator;
 import com.codealike.client.core.internal.utils.Configuration;
+import com.codealike.client.core.internal.utils.Diagnostics;
 import com.codealike.client.core.internal.utils.LogManager;
 import com.codealike.client.intellij.ProjectConfig;
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.intellij.ide.util.PropertiesComponent;
@@ -26,9 +27,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.project.ProjectKt;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
-import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.DateTimeFormatterBuilder;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -38,6 +37,7 @@ import java.security.KeyManagementException;
 import java.util.Properties;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Plugin context singleton.
@@ -54,61 +54,97 @@ public class PluginContext {
     private String ideName;
     private Version protocolVersion;
     private Properties properties;
-    private ObjectWriter jsonWriter;
-    private ObjectMapper jsonMapper;
-    private ContextCreator contextCreator;
-    private DateTimeFormatter dateTimeFormatter;
-    private DateTimeFormatter dateTimeParser;
     private IdentityService identityService;
-    private TrackingService trackingService;
     private String instanceValue;
-    private String machineName;
+    private final StartupPipeline startup;
+    private volatile String machineName;
     private Configuration configuration;
+    private boolean pluginSettingsRefreshed;
 
-    public PluginContext(Properties properties) {
+    // created on first use, most of them are only needed once a session is active
+    private ContextCreator contextCreator;
+    private TrackingService trackingService;
+    private ProjectRegistrationQueue registrationQueue;
+
+    /**
+     * Plugin context constructor. Only local settings are read, so it is safe to call
+     * on startup. JSON serialization, the API transport and the tracking machinery are
+     * loaded on first use, and plugin settings are refreshed from the server once a
+     * session starts (see {@link #refreshPluginSettings()}).
+     *
+     * @param properties the plugin properties
+     * @param startup    the startup pipeline, records per project phases (e.g. project ids)
+     */
+    public PluginContext(Properties properties, StartupPipeline startup) {
         DateTimeZone.setDefault(DateTimeZone.UTC);
 
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JodaPeriodModule());
-        mapper.setSerializationInclusion(Include.NON_NULL);
-        this.jsonWriter = mapper.writer().withDefaultPrettyPrinter();
-        this.jsonMapper = mapper;
-        this.contextCreator = new ContextCreator();
-        this.dateTimeParser = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
-        this.dateTimeFormatter = new DateTimeFormatterBuilder().appendYear(4, 4).appendLiteral("-").
-                appendMonthOfYear(2).appendLiteral("-").appendDayOfMonth(2).
-                appendLiteral("T").appendHourOfDay(2).appendLiteral(":").
-                appendMinuteOfHour(2).appendLiteral(":").appendSecondOfMinute(2).
-                appendLiteral(".").appendMillisOfSecond(3).appendLiteral("Z").toFormatter();
+        this.startup = startup != null ? startup : new StartupPipeline();
         this.identityService = IdentityService.getInstance();
-        this.instanceValue = String.valueOf(new Random(DateTime.now().getMillis()).nextInt(Integer.MAX_VALUE) + 1);
+        this.instanceValue = String.valueOf(new Random(System.currentTimeMillis()).nextInt(Integer.MAX_VALUE) + 1);
         this.protocolVersion = new Version(0, 9);
         this.properties = properties;
         this.ideName = ApplicationNamesInfo.getInstance().getLowercaseProductName();
-        this.machineName = findLocalHostNameOr("unknown");
 
         // initialize configuration with required parameters
         this.configuration = new Configuration(this.ideName, VERSION, this.instanceValue);
         this.configuration.loadGlobalSettings();
+        ApiClient.selectTransport(this.configuration.getHttpTransport());
+        ApiClient.getResponseCache().persistTo(this.configuration.getResponseCacheFile());
+        this.configuration.loadStoredPluginSettings();
+
+        // nothing needs the server before a session starts
+        this.identityService.addListener(() -> {
+            if (this.identityService.isAuthenticated()) {
+                getRegistrationQueue().schedule();
+                refreshPluginSettingsOnce();
+            }
+        });
+        Diagnostics.getInstance().register("Project registrations", () -> {
+            ProjectRegistrationQueue queue = peekRegistrationQueue();
+            return queue != null ? queue.toString() : "not created";
+        });
+    }
 
-        // try to load plugin settings from server
-        ApiResponse<PluginSettingsInfo> pluginSettings = ApiClient.getPluginSettings();
-        if (pluginSettings.success()) {
-            this.configuration.loadPluginSettings(pluginSettings.getObject());
+    private synchronized void refreshPluginSettingsOnce() {
+        if (!this.pluginSettingsRefreshed) {
+            this.pluginSettingsRefreshed = true;
+            refreshPluginSettings();
         }
     }
 
+    /**
+     * Refresh plugin settings from the server in the background. New settings
+     * replace the current ones as a whole once they arrive.
+     *
+     * @return a future completed with true if settings were received, false otherwise
+     */
+    public CompletableFuture<Boolean> refreshPluginSettings() {
+        return ApiClient.getPluginSettingsAsync().thenApply(pluginSettings -> {
+            if (pluginSettings.success()) {
+                this.configuration.loadPluginSettings(pluginSettings.getObject());
+                return true;
+            }
+            LogManager.INSTANCE.logInfo(String.format("Could not refresh plugin settings (Status: %s), using stored ones.",
+                    pluginSettings.getStatus()));
+            return false;
+        });
+    }
+
     public static PluginContext getInstance() {
-        return PluginContext.getInstance(null);
+        return PluginContext.getInstance(null, null);
     }
 
-    public static PluginContext getInstance(Properties properties) {
+    public static PluginContext getInstance(Properties properties, StartupPipeline startup) {
         if (_instance == null) {
-            _instance = new PluginContext(properties);
+            _instance = new PluginContext(properties, startup);
         }
         return _instance;
     }
 
+    public StartupPipeline getStartup() {
+        return this.startup;
+    }
+
     public Configuration getConfiguration() {
         return this.configuration;
     }
@@ -122,13 +158,13 @@ public class PluginContext {
     }
 
     public String getMachineName() {
+        // resolved on first use, the lookup may hit the network
+        if (machineName == null) {
+            machineName = findLocalHostNameOr("unknown");
+        }
         return machineName;
     }
 
-    public void initializeContext() throws IOException {
-        this.trackingService = TrackingService.getInstance();
-    }
-
     private UUID tryGetLegacySolutionIdV2(Project project) {
         UUID solutionId = null;
 
@@ -149,19 +185,11 @@ public class PluginContext {
             // if solutionId is still null
             // there is no clue of the solution id
             // so it should be a new one. Let's create
-            // a new solutionId
+            // a new solutionId locally, so tracking starts
+            // right away, and register it in the background
             if (solutionId == null) {
-                solutionId = tryCreateUniqueId();
-
-                try {
-                    // once created, let's register the solution id for the project
-                    if (!registerProjectContext(solutionId, project.getName())) {
-                        return null;
-                    }
-                } catch (Exception e) {
-                    String projectName = project != null ? project.getName() : "";
-                    LogManager.INSTANCE.logError(e, "Could not create UUID for project " + projectName);
-                }
+                solutionId = UUID.randomUUID();
+                getRegistrationQueue().enqueue(solutionId, project.getName());
             }
         }
 
@@ -187,6 +215,15 @@ public class PluginContext {
     }
 
     public UUID getOrCreateUUID(Project project) {
+        return this.startup.measure("project id " + project.getName(), () -> loadOrCreateUUID(project));
+    }
+
+    /*
+     *  loadOrCreateUUID:
+     *  Reads the project id from codealike.json or older stores,
+     *  creating and queuing a new one when there is none
+     */
+    private UUID loadOrCreateUUID(Project project) {
         Configuration configuration = PluginContext.getInstance().getConfiguration();
         UUID solutionId = null;
 
@@ -200,24 +237,15 @@ public class PluginContext {
             // let's try to load configuration from older plugin versions
             solutionId = tryGetLegacySolutionIdV2(project);
 
-            if (solutionId != null) {
-                // if solution id was found by other method than
-                // loading project settings file from project folder
-                // we have to save a new project settings with
-                // generated information
-                projectSettings.setProjectId(solutionId);
-                projectSettings.setProjectName(project.getName());
-
-                // and save the file for future uses
-                configuration.saveProjectSettings(existingBaseDirPath.toString(), projectSettings);
-            } else {
-                // if we reached this branch
-                // it means not only no configuration was found
-                // but also we were not able to register a new
-                // configuration in server.
-                // log was saved by internal method
-                // nothing else to do here
-            }
+            // if solution id was found by other method than
+            // loading project settings file from project folder
+            // or just created, we have to save a new project
+            // settings with generated information
+            projectSettings.setProjectId(solutionId);
+            projectSettings.setProjectName(project.getName());
+
+            // and save the file for future uses
+            configuration.saveProjectSettings(existingBaseDirPath.toString(), projectSettings);
         }
 
         return projectSettings.getProjectId();
@@ -231,63 +259,59 @@ public class PluginContext {
         }
     }
 
-    private UUID tryCreateUniqueId() {
-        UUID solutionId = UUID.randomUUID();
-        ApiClient client;
-        try {
-            client = ApiClient.tryCreateNew(this.identityService.getIdentity(), this.identityService.getToken());
-        } catch (KeyManagementException e) {
-            LogManager.INSTANCE.logError(e, "Could not create unique Id synchronized with the server. There was a problem with SSL configuration.");
-            return solutionId;
-        }
-        ApiResponse<SolutionContextInfo> response = client.getSolutionContext(solutionId);
-        if (response.connectionTimeout()) {
-            LogManager.INSTANCE.logInfo("Communication problems running in offline mode.");
-            return solutionId;
-        }
-        int numberOfRetries = 0;
-        while (response.conflict() || (response.error() && numberOfRetries < ApiClient.MAX_RETRIES)) {
-            solutionId = UUID.randomUUID();
-            response = client.getSolutionContext(solutionId);
-        }
-
-        return solutionId;
+    public boolean registerProjectContext(UUID solutionId, String projectName) throws Exception {
+        return registerProjectContextAsync(solutionId, projectName).join();
     }
 
-    public boolean registerProjectContext(UUID solutionId, String projectName) throws Exception {
+    public CompletableFuture<Boolean> registerProjectContextAsync(UUID solutionId, String projectName) {
         ApiClient client;
         try {
             client = ApiClient.tryCreateNew(this.identityService.getIdentity(), this.identityService.getToken());
         } catch (KeyManagementException e) {
             LogManager.INSTANCE.logError(e, "Could not register unique project context in the remote server. There was a problem with SSL configuration.");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
-        ApiResponse<SolutionContextInfo> solutionInfoResponse = client.getSolutionContext(solutionId);
-        if (solutionInfoResponse.notFound()) {
-            ApiResponse<Void> response = client.registerProjectContext(solutionId, projectName);
-            if (!response.success()) {
-                LogManager.INSTANCE.logError("Problem registering solution.");
-            } else {
-                return true;
+        return client.getSolutionContextAsync(solutionId).thenCompose(solutionInfoResponse -> {
+            if (solutionInfoResponse.notFound()) {
+                return client.registerProjectContextAsync(solutionId, projectName).thenApply(response -> {
+                    if (!response.success()) {
+                        LogManager.INSTANCE.logError("Problem registering solution.");
+                        return false;
+                    }
+                    return true;
+                });
+            } else if (solutionInfoResponse.success()) {
+                return CompletableFuture.completedFuture(true);
+            } else if (solutionInfoResponse.connectionTimeout()) {
+                LogManager.INSTANCE.logInfo("Communication problems running in offline mode.");
             }
-        } else if (solutionInfoResponse.success()) {
-            return true;
-        } else if (solutionInfoResponse.connectionTimeout()) {
-            LogManager.INSTANCE.logInfo("Communication problems running in offline mode.");
-        }
-        return false;
+            return CompletableFuture.completedFuture(false);
+        });
     }
 
     public boolean checkVersion() {
+        return checkVersionAsync().join();
+    }
+
+    /**
+     * Check the plugin protocol version is still supported by the server. The plugin is
+     * assumed to be supported when the server can not be reached.
+     *
+     * @return a future completed with false if the plugin should not run
+     */
+    public CompletableFuture<Boolean> checkVersionAsync() {
         ApiClient client;
         try {
             client = ApiClient.tryCreateNew();
         } catch (KeyManagementException e) {
             LogManager.INSTANCE.logError(e, "Could not access remote server. There was a problem with SSL configuration.");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
-        ApiResponse<Version> response = client.version();
+        return client.versionAsync().thenApply(this::isSupportedVersion);
+    }
+
+    private boolean isSupportedVersion(ApiResponse<Version> response) {
         if (response.success()) {
             Version version = response.getObject();
             Version expectedVersion = getProtocolVersion();
@@ -338,24 +362,67 @@ public class PluginContext {
         return this.properties.getProperty(key);
     }
 
+    // serialization classes act as holders, they are initialized on first access
+
     public ObjectWriter getJsonWriter() {
-        return this.jsonWriter;
+        return CodealikeJson.getWriter();
     }
 
     public ObjectMapper getJsonMapper() {
-        return this.jsonMapper;
+        return CodealikeJson.getMapper();
     }
 
-    public ContextCreator getContextCreator() {
+    public synchronized ContextCreator getContextCreator() {
+        if (this.contextCreator == null) {
+            this.contextCreator = new ContextCreator();
+        }
         return this.contextCreator;
     }
 
     public DateTimeFormatter getDateTimeFormatter() {
-        return this.dateTimeFormatter;
+        return DateTimeSerializer.FORMATTER;
     }
 
     public DateTimeFormatter getDateTimeParser() {
-        return this.dateTimeParser;
+        return DateTimeDeserializer.PARSER;
+    }
+
+    /**
+     * Get the queue of project contexts waiting to be registered. If it doesn't exist,
+     * it is created and loads the registrations stored by previous sessions.
+     *
+     * @return the {@link ProjectRegistrationQueue} instance
+     */
+    public synchronized ProjectRegistrationQueue getRegistrationQueue() {
+        if (this.registrationQueue == null) {
+            this.registrationQueue = new ProjectRegistrationQueue(this.configuration.getRegistrationQueueFile(),
+                    settings -> registerProjectContextAsync(settings.getProjectId(), settings.getProjectName()),
+                    this.identityService::isAuthenticated);
+        }
+        return this.registrationQueue;
+    }
+
+    private synchronized ProjectRegistrationQueue peekRegistrationQueue() {
+        return this.registrationQueue;
+    }
+
+    /**
+     * Store tracking in progress locally and stop background work. Only what was
+     * used during the session is shut down.
+     */
+    public void shutdown() {
+        TrackingService tracking;
+        ProjectRegistrationQueue queue;
+        synchronized (this) {
+            tracking = this.trackingService;
+            queue = this.registrationQueue;
+        }
+        if (tracking != null) {
+            tracking.shutdown();
+        }
+        if (queue != null) {
+            queue.close();
+        }
     }
 
     public IdentityService getIdentityService() {
@@ -366,8 +433,11 @@ public class PluginContext {
         return this.identityService.isAuthenticated();
     }
 
-    public TrackingService getTrackingService() {
-        return trackingService;
+    public synchronized TrackingService getTrackingService() {
+        if (this.trackingService == null) {
+            this.trackingService = TrackingService.getInstance();
+        }
+        return this.trackingService;
     }
 
     public String getInstanceValue() {
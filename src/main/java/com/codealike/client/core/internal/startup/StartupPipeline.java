@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.startup;
+
+import com.codealike.client.core.internal.utils.LogManager;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Plugin startup as a graph of asynchronous phases.
+ * <p>
+ * Each phase starts as soon as the phases it depends on have completed, so
+ * independent phases (e.g. the version check and the login) overlap. A phase
+ * whose dependencies failed is skipped. Start and end of every phase are
+ * recorded with a monotonic clock relative to the pipeline creation, logged as
+ * a structured line when the phase ends and kept for the diagnostics dump.
+ * <p>
+ * Synchronous work (e.g. loading properties) is recorded with
+ * {@link #measure(String, Supplier)}. Phases can be added after startup, e.g.
+ * when a project is opened, up to {@link #MAX_PHASES}; later ones run untimed.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class StartupPipeline {
+    public static final int MAX_PHASES = 64;
+
+    private final long createdAt = System.nanoTime();
+    // JVM uptime when the pipeline was created, how late in IDE startup the plugin started
+    private final long jvmUptime = ManagementFactory.getRuntimeMXBean().getUptime();
+    private final boolean logPhases;
+    private final List<Phase> phases = new ArrayList<>();
+    private int untimed;
+
+    public StartupPipeline() {
+        this(true);
+    }
+
+    /**
+     * Pipeline constructor.
+     *
+     * @param logPhases true to log a structured line when a phase ends
+     */
+    public StartupPipeline(boolean logPhases) {
+        this.logPhases = logPhases;
+    }
+
+    /**
+     * Add a phase to the pipeline.
+     *
+     * @param name      the phase name, used in timings
+     * @param task      starts the phase work and returns its completion, should not block
+     * @param dependsOn the phases that must complete before this one starts
+     * @param <T>       the phase result type
+     * @return the phase completion
+     */
+    public <T> CompletableFuture<T> phase(String name, Callable<CompletableFuture<T>> task, CompletableFuture<?>... dependsOn) {
+        Phase phase = add(name);
+
+        CompletableFuture<T> completion = CompletableFuture.allOf(dependsOn).thenCompose(ready -> {
+            if (phase != null) {
+                phase.begin(elapsedNanos());
+            }
+            try {
+                return task.call();
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+        if (phase != null) {
+            completion.whenComplete((result, e) -> complete(phase, e));
+        }
+        return completion;
+    }
+
+    /**
+     * Run and record a synchronous phase.
+     *
+     * @param name the phase name, used in timings
+     * @param task the phase work
+     * @param <T>  the phase result type
+     * @return the phase result
+     */
+    public <T> T measure(String name, Supplier<T> task) {
+        Phase phase = add(name);
+        if (phase == null) {
+            return task.get();
+        }
+
+        phase.begin(elapsedNanos());
+        try {
+            T result = task.get();
+            complete(phase, null);
+            return result;
+        } catch (RuntimeException e) {
+            complete(phase, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Get a future completed when every phase added so far has completed,
+     * successfully or not.
+     *
+     * @return the pipeline completion
+     */
+    public synchronized CompletableFuture<Void> completion() {
+        return CompletableFuture.allOf(phases.stream()
+                .map(phase -> phase.completion)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Get the elapsed time since the pipeline was created.
+     *
+     * @return the elapsed time (in milliseconds)
+     */
+    public long elapsed() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos());
+    }
+
+    /**
+     * Get the duration of every completed phase, in the order phases were added.
+     * A name used by several phases keeps the last one.
+     *
+     * @return the phase durations (in milliseconds, fractional)
+     */
+    public synchronized Map<String, Double> getDurations() {
+        Map<String, Double> durations = new LinkedHashMap<>();
+        for (Phase phase : phases) {
+            if (phase.start >= 0 && phase.end >= 0) {
+                durations.put(phase.name, (phase.end - phase.start) / 1e6);
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * Describe the pipeline with one phase per line, for the diagnostics dump.
+     *
+     * @return the description
+     */
+    public synchronized String describe() {
+        StringBuilder description = new StringBuilder(String.format("Started %d ms after JVM start, %d ms ago.",
+                jvmUptime, elapsed()));
+        for (Phase phase : phases) {
+            description.append(System.lineSeparator()).append(phase);
+        }
+        if (untimed > 0) {
+            description.append(System.lineSeparator()).append(String.format("%d more phases not timed.", untimed));
+        }
+        return description.toString();
+    }
+
+    /**
+     * Describe the phases with their timings, e.g. "version 0-212 ms (212 ms)".
+     *
+     * @return the description
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder description = new StringBuilder(String.format("Startup took %d ms:", elapsed()));
+        for (Phase phase : phases) {
+            description.append(' ').append(phase).append(';');
+        }
+        description.setLength(description.length() - 1);
+        return description.toString();
+    }
+
+    private long elapsedNanos() {
+        return System.nanoTime() - createdAt;
+    }
+
+    private synchronized Phase add(String name) {
+        if (phases.size() >= MAX_PHASES) {
+            untimed++;
+            return null;
+        }
+        Phase phase = new Phase(name);
+        phases.add(phase);
+        return phase;
+    }
+
+    /*
+     *  complete:
+     *  Records the end of a phase and logs it as a structured line,
+     *  e.g. startup phase="login" start_ms=3 duration_ms=212 outcome=ok
+     */
+    private void complete(Phase phase, Throwable e) {
+        phase.complete(elapsedNanos(), e);
+        phase.completion.complete(null);
+        if (logPhases) {
+            LogManager.INSTANCE.logInfo(phase.toLogLine());
+        }
+    }
+
+    private static class Phase {
+        private final String name;
+        // monotonic offsets from the pipeline creation (in nanoseconds)
+        private volatile long start = -1;
+        private volatile long end = -1;
+        private volatile String thread;
+        private volatile String outcome = "pending";
+        // completed when the phase ends, successfully or not; created with the
+        // phase so it is set before the phase is visible to completion()
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        private void begin(long at) {
+            start = at;
+            thread = Thread.currentThread().getName();
+        }
+
+        private void complete(long at, Throwable e) {
+            end = at;
+            if (e == null) {
+                outcome = "ok";
+            } else {
+                outcome = start < 0 ? "skipped" : "failed";
+            }
+        }
+
+        private String toLogLine() {
+            if (start < 0) {
+                return String.format("startup phase=\"%s\" outcome=%s", name, outcome);
+            }
+            return String.format("startup phase=\"%s\" start_ms=%.1f duration_ms=%.1f outcome=%s thread=\"%s\"",
+                    name, start / 1e6, (end - start) / 1e6, outcome, thread);
+        }
+
+        @Override
+        public String toString() {
+            if (start < 0 || end < 0) {
+                return String.format("%s %s", name, outcome);
+            }
+            long startMillis = TimeUnit.NANOSECONDS.toMillis(start);
+            long endMillis = TimeUnit.NANOSECONDS.toMillis(end);
+            return String.format("%s %d-%d ms (%d ms, %s)", name, startMillis, endMillis, endMillis - startMillis, outcome);
+        }
+    }
+}
@@ -12,7 +12,10 @@ import com.codealike.client.core.internal.model.ActivityEvent;
 import com.codealike.client.core.internal.model.ActivityState;
 import com.codealike.client.core.internal.model.IEndable;
 import com.codealike.client.core.internal.processing.ActivityInfoProcessor;
+import com.codealike.client.core.internal.processing.ActivityInfoSplitter;
 import com.codealike.client.core.internal.startup.PluginContext;
+import com.codealike.client.core.internal.utils.Configuration;
+import com.codealike.client.core.internal.utils.LocalIOExecutor;
 import com.codealike.client.core.internal.utils.LogManager;
 import com.codealike.client.core.internal.utils.TrackingConsole;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -20,14 +23,13 @@ import org.joda.time.DateTime;
 import org.joda.time.Period;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.net.UnknownHostException;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class ActivitiesRecorder {
     private List<ActivityState> states;
@@ -41,6 +43,8 @@ public class ActivitiesRecorder {
     private DateTime currentBatchStart;
     private DateTime lastEventTime;
 
+    private CacheReplayer cacheReplayer;
+
     public ActivitiesRecorder(PluginContext context) {
         this.states = new LinkedList<>();
         this.events = new LinkedList<>();
@@ -197,7 +201,13 @@ public class ActivitiesRecorder {
         return true;
     }
 
-    public FlushResult flush(String username, String token) throws UnknownHostException {
+    /*
+     *  closeCurrentBatch:
+     *  This method closes the batch being recorded (setting up duration
+     *  for last state and event), starts a new one and returns the closed
+     *  batch as serializable entities. Returns null if there is nothing to send.
+     */
+    private List<ActivityInfo> closeCurrentBatch() {
         List<ActivityState> statesToSend = null;
         List<ActivityEvent> eventsToSend = null;
         DateTime batchStart = currentBatchStart;
@@ -206,7 +216,7 @@ public class ActivitiesRecorder {
         // if lastState or lastEvent are null then there is no info to flush
         // so lets skip this attempt
         if (lastState == null || lastEvent == null || this.HasOnlyIdleState()) {
-            return FlushResult.Skip;
+            return null;
         }
 
         synchronized (this) {
@@ -235,9 +245,40 @@ public class ActivitiesRecorder {
         // creates an info procesor
         ActivityInfoProcessor processor = new ActivityInfoProcessor(statesToSend, eventsToSend, batchStart, batchEnd);
 
-        List<ActivityInfo> activityInfoList = processor.getSerializableEntities(context.getMachineName(),
+        return processor.getSerializableEntities(context.getMachineName(),
                 context.getInstanceValue(), context.getIdeName(), context.getPluginVersion());
+    }
+
+    /*
+     *  persist:
+     *  This method closes the current batch and stores it in the local
+     *  cache without any network access. Cached batches are sent by the
+     *  replay of the next flush (usually in the next session).
+     */
+    public List<CompletableFuture<File>> persist() {
+        List<CompletableFuture<File>> stored = new LinkedList<>();
+
+        List<ActivityInfo> activityInfoList = closeCurrentBatch();
+        if (activityInfoList == null) {
+            return stored;
+        }
+
+        for (ActivityInfo info : activityInfoList) {
+            if (!info.isValid()) {
+                continue;
+            }
+            stored.add(storeLocally(context.getConfiguration().getCacheFile(info.getBatchId()), info));
+        }
+        return stored;
+    }
+
+    public FlushResult flush(String username, String token) throws UnknownHostException {
+        List<ActivityInfo> activityInfoList = closeCurrentBatch();
+        if (activityInfoList == null) {
+            return FlushResult.Skip;
+        }
 
+        ActivityInfoSplitter splitter = new ActivityInfoSplitter(context.getConfiguration().getMaxPayloadSize());
         FlushResult result = FlushResult.Succeded;
         for (ActivityInfo info : activityInfoList) {
             if (!info.isValid()) {
@@ -248,106 +289,94 @@ public class ActivitiesRecorder {
                 LogManager.INSTANCE.logError("Could not access cache folder. It might not be created.");
                 continue;
             }
-            FlushResult intermediateResult = trySendEntries(info, username, token);
-            if (intermediateResult == FlushResult.Succeded) {
-                for (final File fileEntry : cacheFolder.listFiles()) {
-                    trySendEntriesOnFile(fileEntry.getName(), username, token);
-                }
 
-                if (context.getConfiguration().getTrackSent()) {
-                    //String.format("%s%s%s%s", cacheFolder.getAbsolutePath(), File.separator, info.getBatchId(), ".sent");
-                    File historyFile = context.getConfiguration().getHistoryFile();
-                    FileOutputStream stream = null;
-                    try {
-                        stream = new FileOutputStream(historyFile);
-                        ObjectWriter writer = context.getJsonWriter();
-                        String json = writer.writeValueAsString(info);
-                        stream.write(json.getBytes(Charset.forName("UTF-8")));
-                    } catch (Exception e) {
-                        LogManager.INSTANCE.logError(e, "There was a problem trying to store activity data locally.");
-                    } finally {
-                        if (stream != null) {
-                            try {
-                                stream.close();
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                        }
+            // oversized batches are posted in chunks, each one sent or cached on its own
+            boolean sent = true;
+            boolean offline = ApiClient.getConnectivity().isOffline();
+            for (ActivityInfo chunk : split(splitter, info)) {
+                FlushResult intermediateResult = offline ? FlushResult.Offline : trySendEntries(chunk, username, token);
+                if (intermediateResult == FlushResult.Succeded) {
+                    if (context.getConfiguration().getTrackSent()) {
+                        storeLocally(context.getConfiguration().getHistoryFile(chunk.getBatchId()), chunk);
                     }
+                } else {
+                    storeLocally(context.getConfiguration().getCacheFile(chunk.getBatchId()), chunk);
+                    // no point in trying the remaining chunks, cache them straight away
+                    // (same when the API was already known to be offline)
+                    offline = intermediateResult == FlushResult.Offline;
+                    sent = false;
                 }
-            } else {
-                //String filename = String.format("%s\\%s%s", cacheFolder.getAbsolutePath(), info.getBatchId(), activityLogExtension);
-                File cacheFile = context.getConfiguration().getCacheFile();
-                FileOutputStream stream = null;
-                try {
-                    stream = new FileOutputStream(cacheFile);
-                    ObjectWriter writer = context.getJsonWriter();
-                    String json = writer.writeValueAsString(info);
-                    stream.write(json.getBytes(Charset.forName("UTF-8")));
-                } catch (Exception e) {
-                    LogManager.INSTANCE.logError(e, "There was a problem trying to store activity data locally.");
-                } finally {
-                    if (stream != null) {
-                        try {
-                            stream.close();
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    }
+
+                if (intermediateResult != FlushResult.Succeded && intermediateResult != FlushResult.Skip) {
+                    result = intermediateResult;
                 }
             }
 
-            if (intermediateResult != FlushResult.Succeded && intermediateResult != FlushResult.Skip) {
-                result = intermediateResult;
+            if (sent) {
+                replayCachedEntries(username, token);
             }
         }
         return result;
     }
 
-    private void trySendEntriesOnFile(String fileName, String username, String token) {
+    private List<ActivityInfo> split(ActivityInfoSplitter splitter, ActivityInfo info) {
         try {
-            FlushResult result = FlushResult.Skip;
-            File fileEntry = new File(context.getConfiguration().getCachePath(), fileName);
-            try {
-                ActivityInfo activityInfo = context.getJsonMapper().readValue(new FileInputStream(fileEntry), ActivityInfo.class);
-                ApiClient client = ApiClient.tryCreateNew(username, token);
+            return splitter.split(info);
+        } catch (Exception e) {
+            LogManager.INSTANCE.logWarn(e, "Could not measure activity payload, sending it as a single batch.");
+            return Collections.singletonList(info);
+        }
+    }
 
-                ApiResponse<Void> response = client.postActivityInfo(activityInfo);
-                if (response.success()) {
-                    result = FlushResult.Succeded;
-                }
+    private void replayCachedEntries(String username, String token) {
+        ApiClient client;
+        try {
+            client = ApiClient.tryCreateNew(username, token);
+        } catch (KeyManagementException e) {
+            LogManager.INSTANCE.logError(e, "Could not send data to remote server. There was a problem with SSL configuration.");
+            return;
+        }
 
-                if (response.conflict() || response.getStatus() == Status.BadRequest || response.error() || response.notFound()) {
-                    result = FlushResult.Report;
-                }
-            } catch (IOException e) {
-                LogManager.INSTANCE.logError(e, "There was a problem trying to send offline activity data to the server.");
-                result = FlushResult.Report;
-            } catch (KeyManagementException e) {
-                LogManager.INSTANCE.logError(e, "Could not send data to remote server. There was a problem with SSL configuration.");
-                result = FlushResult.Skip;
-            } finally {
-                switch (result) {
-                    case Succeded: {
-                        fileEntry.renameTo(new File(context.getConfiguration().getHistoryPath(), fileName));
-                    }
-                    case Report: {
-                        fileEntry.renameTo(new File(context.getConfiguration().getHistoryPath(), fileName + ".error"));
-                        break;
-                    }
-                    case Skip: {
-                        break;
-                    }
-                    case Offline: {
-                        break;
-                    }
-                    default:
-                        break;
-                }
+        CacheReplayer replayer = getCacheReplayer();
+        if (!replayer.beginReplay()) {
+            // another local instance is replaying the shared cache
+            TrackingConsole.getInstance().trackMessage("Offline cache is being replayed by another instance");
+            return;
+        }
+        try {
+            for (final File fileEntry : replayer.getPendingFiles()) {
+                replayer.replay(fileEntry, client);
             }
-        } catch (Throwable t) {
-            LogManager.INSTANCE.logError(t, "There was a problem trying to send offline activity data to the server.");
+        } finally {
+            replayer.endReplay();
+        }
+    }
+
+    private CompletableFuture<File> storeLocally(File file, ActivityInfo info) {
+        try {
+            ObjectWriter writer = context.getJsonWriter();
+            String json = writer.writeValueAsString(info);
+            return LocalIOExecutor.getInstance().write(file, json.getBytes(StandardCharsets.UTF_8))
+                    .whenComplete((stored, e) -> {
+                        if (e != null) {
+                            LogManager.INSTANCE.logError(e, "There was a problem trying to store activity data locally.");
+                        }
+                    });
+        } catch (Exception e) {
+            LogManager.INSTANCE.logError(e, "There was a problem trying to store activity data locally.");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private synchronized CacheReplayer getCacheReplayer() {
+        if (cacheReplayer == null) {
+            Configuration configuration = context.getConfiguration();
+            ReplayLedger ledger = new ReplayLedger(configuration.getReplayLedgerFile());
+            ReplayLease lease = new ReplayLease(configuration.getReplayLockFile());
+            cacheReplayer = new CacheReplayer(configuration.getCachePath(), configuration.getHistoryPath(), ledger, lease,
+                    configuration.getMaxPayloadSize());
         }
+        return cacheReplayer;
     }
 
     private FlushResult trySendEntries(ActivityInfo info, String username, String token) {
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.tracking;
+
+import com.codealike.client.core.api.ApiClient;
+import com.codealike.client.core.api.ApiResponse;
+import com.codealike.client.core.api.ApiResponse.Status;
+import com.codealike.client.core.internal.dto.ActivityInfo;
+import com.codealike.client.core.internal.processing.ActivityInfoSplitter;
+import com.codealike.client.core.internal.serialization.CodealikeJson;
+import com.codealike.client.core.internal.tracking.ActivitiesRecorder.FlushResult;
+import com.codealike.client.core.internal.utils.LocalIOExecutor;
+import com.codealike.client.core.internal.utils.LogManager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replays activity batches stored in the offline cache. Sent batches are recorded
+ * in the {@link ReplayLedger} and moved to the history folder.
+ * <p>
+ * The cache is shared by every local instance, so a replay pass must hold the
+ * {@link ReplayLease} (see {@link #beginReplay()} and {@link #endReplay()}).
+ * <p>
+ * Batches over the payload budget are posted in chunks (see {@link ActivityInfoSplitter}).
+ * Each acknowledged chunk is recorded in the ledger, so a replay interrupted half way
+ * only posts the remaining chunks next time.
+ * <p>
+ * Has no dependency on the IDE, so it is shared by the plugin and the headless
+ * cache uploader.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class CacheReplayer {
+    private final File cachePath;
+    private final File historyPath;
+    private final ReplayLedger ledger;
+    private final ReplayLease lease;
+    private final ActivityInfoSplitter splitter;
+
+    // cached files being replayed or replayed but not yet moved to history
+    private final Set<String> pendingReplays = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Cache replayer constructor.
+     *
+     * @param cachePath      the offline cache folder
+     * @param historyPath    the history folder
+     * @param ledger         the ledger of acknowledged batches
+     * @param lease          the lease on the shared cache
+     * @param maxPayloadSize the maximum size of a posted batch (in bytes)
+     */
+    public CacheReplayer(File cachePath, File historyPath, ReplayLedger ledger, ReplayLease lease, int maxPayloadSize) {
+        this.cachePath = cachePath;
+        this.historyPath = historyPath;
+        this.ledger = ledger;
+        this.lease = lease;
+        this.splitter = new ActivityInfoSplitter(maxPayloadSize);
+    }
+
+    /**
+     * Start a replay pass. Fails if another local instance is replaying the cache.
+     *
+     * @return true if this process can replay the cache, false otherwise
+     */
+    public boolean beginReplay() {
+        if (!lease.tryAcquire()) {
+            return false;
+        }
+        // previous holder may have acknowledged batches since we last looked
+        ledger.refresh();
+        return true;
+    }
+
+    /**
+     * End a replay pass. Must be called once for every successful {@link #beginReplay()}.
+     * The pass releases its hold on the lease once queued ledger updates and moves
+     * to history are done, so the next holder sees a consistent cache. A pass begun
+     * meanwhile keeps the lease until it ends as well.
+     */
+    public void endReplay() {
+        LocalIOExecutor.getInstance().submit(() -> {
+            lease.release();
+            return null;
+        });
+    }
+
+    /**
+     * Get the cached files waiting to be replayed.
+     *
+     * @return the list of cached files
+     */
+    public List<File> getPendingFiles() {
+        List<File> pending = new LinkedList<>();
+        File[] files = cachePath.listFiles();
+        if (files == null) {
+            return pending;
+        }
+        for (File fileEntry : files) {
+            // skip files still being written by the local I/O executor
+            // and files already replayed whose move is still queued
+            if (LocalIOExecutor.isTemporary(fileEntry) || pendingReplays.contains(fileEntry.getName())) {
+                continue;
+            }
+            pending.add(fileEntry);
+        }
+        return pending;
+    }
+
+    /**
+     * Send a cached file to the server.
+     *
+     * @param fileEntry the cached file
+     * @param client    the API client to use
+     * @return the replay result
+     */
+    public FlushResult replay(File fileEntry, ApiClient client) {
+        String fileName = fileEntry.getName();
+        if (!pendingReplays.add(fileName)) {
+            return FlushResult.Skip;
+        }
+
+        FlushResult result = FlushResult.Skip;
+        try {
+            ActivityInfo activityInfo;
+            try (FileInputStream stream = new FileInputStream(fileEntry)) {
+                activityInfo = CodealikeJson.getMapper().readValue(stream, ActivityInfo.class);
+            }
+
+            result = FlushResult.Succeded;
+            for (ActivityInfo chunk : splitter.split(activityInfo)) {
+                FlushResult chunkResult = replayChunk(chunk, client);
+                if (chunkResult == FlushResult.Offline) {
+                    // keep the file, acknowledged chunks are skipped next time
+                    result = FlushResult.Offline;
+                    break;
+                }
+                if (chunkResult == FlushResult.Report) {
+                    result = FlushResult.Report;
+                }
+            }
+        } catch (IOException e) {
+            LogManager.INSTANCE.logError(e, "There was a problem trying to send offline activity data to the server.");
+            result = FlushResult.Report;
+        } catch (Throwable t) {
+            LogManager.INSTANCE.logError(t, "There was a problem trying to send offline activity data to the server.");
+            result = FlushResult.Skip;
+        } finally {
+            switch (result) {
+                case Succeded: {
+                    LocalIOExecutor.getInstance().move(fileEntry, new File(historyPath, fileName))
+                            .whenComplete((moved, e) -> pendingReplays.remove(fileName));
+                    break;
+                }
+                case Report: {
+                    LocalIOExecutor.getInstance().move(fileEntry, new File(historyPath, fileName + ".error"))
+                            .whenComplete((moved, e) -> pendingReplays.remove(fileName));
+                    break;
+                }
+                default:
+                    pendingReplays.remove(fileName);
+                    break;
+            }
+        }
+        return result;
+    }
+
+    private FlushResult replayChunk(ActivityInfo chunk, ApiClient client) {
+        // batch was already acknowledged by the server in a previous session
+        // (plugin died before moving the file), so there is nothing to send
+        UUID batchId = chunk.getBatchId();
+        if (ledger.contains(batchId)) {
+            LogManager.INSTANCE.logInfo(String.format("Batch %s already sent, skipping replay.", batchId));
+            return FlushResult.Succeded;
+        }
+
+        ApiResponse<Void> response = client.postActivityInfo(chunk);
+        if (response.success()) {
+            // recorded before the file is moved (same queue), so a crash in between
+            // leaves an acknowledged batch in cache that the ledger will skip
+            LocalIOExecutor.getInstance().submit(() -> {
+                ledger.record(batchId);
+                return batchId;
+            });
+            return FlushResult.Succeded;
+        } else if (response.conflict() || response.getStatus() == Status.BadRequest || response.error() || response.notFound()) {
+            return FlushResult.Report;
+        } else {
+            return FlushResult.Offline;
+        }
+    }
+}
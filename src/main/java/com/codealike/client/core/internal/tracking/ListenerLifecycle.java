@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.tracking;
+
+import com.codealike.client.core.internal.utils.Diagnostics;
+import com.codealike.client.core.internal.utils.LogManager;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.Disposer;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Owns the IDE listeners of a tracking session.
+ * <p>
+ * Every listener is registered on a single parent {@link Disposable} created when
+ * the session is attached and disposed when it is detached, so listeners are
+ * removed by the platform and none outlives its session. The parent is a child
+ * of a plugin disposable (e.g. the application service), so it is disposed on
+ * shutdown and when the plugin is unloaded as well.
+ * <p>
+ * Attaching an attached session is ignored and registering a second listener of
+ * the same class in a session fails, so events are never processed twice. Attach
+ * and detach run in order on the event dispatch thread; the number of listeners
+ * currently registered can be read from any thread.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ListenerLifecycle {
+    private final String name;
+    private final Disposable parent;
+
+    // only used on the event dispatch thread
+    private Disposable session;
+    private final Set<Class<?>> sessionListeners = new HashSet<>();
+
+    // metrics
+    private final AtomicInteger registered = new AtomicInteger();
+    private final AtomicLong sessions = new AtomicLong();
+    private final AtomicLong ignoredAttaches = new AtomicLong();
+
+    /**
+     * Lifecycle constructor. Registers a diagnostics section with the given name.
+     *
+     * @param name   the lifecycle name, used for the session disposable and diagnostics
+     * @param parent the plugin disposable sessions are children of
+     */
+    public ListenerLifecycle(String name, Disposable parent) {
+        this.name = name;
+        this.parent = parent;
+        Diagnostics.getInstance().register(name, this::toString);
+    }
+
+    /**
+     * Start a session and register its listeners, on the event dispatch thread.
+     * Ignored if a session is already attached.
+     *
+     * @param registrations registers the session listeners through {@link #register(Object, BiConsumer)}
+     */
+    public void attach(Consumer<ListenerLifecycle> registrations) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (session != null) {
+                ignoredAttaches.incrementAndGet();
+                LogManager.INSTANCE.logWarn(String.format("%s already attached, listeners not registered again.", name));
+                return;
+            }
+            session = Disposer.newDisposable(parent, name);
+            sessions.incrementAndGet();
+            registrations.accept(this);
+        });
+    }
+
+    /**
+     * Register a listener on the current session. Only called from {@link #attach(Consumer)}.
+     *
+     * @param listener the listener
+     * @param add      adds the listener to the platform, removed when the given disposable is disposed
+     * @param <L>      the listener type
+     * @throws IllegalStateException if there is no session or a listener of the same class is registered
+     */
+    public <L> void register(L listener, BiConsumer<L, Disposable> add) {
+        if (session == null) {
+            throw new IllegalStateException(name + " is not attached.");
+        }
+        if (!sessionListeners.add(listener.getClass())) {
+            throw new IllegalStateException(String.format("%s already registered in %s.", listener.getClass().getSimpleName(), name));
+        }
+        add.accept(listener, session);
+        registered.incrementAndGet();
+        Disposer.register(session, registered::decrementAndGet);
+    }
+
+    /**
+     * End the current session, on the event dispatch thread. Its listeners are removed.
+     */
+    public void detach() {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (session == null) {
+                return;
+            }
+            Disposer.dispose(session);
+            session = null;
+            sessionListeners.clear();
+        });
+    }
+
+    /**
+     * Get the number of listeners currently registered.
+     *
+     * @return the number of registered listeners
+     */
+    public int getRegisteredCount() {
+        return registered.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d listeners registered, %d sessions, %d repeated attaches ignored",
+                registered.get(), sessions.get(), ignoredAttaches.get());
+    }
+}
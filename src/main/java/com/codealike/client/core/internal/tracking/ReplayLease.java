@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.tracking;
+
+import com.codealike.client.core.internal.utils.LogManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lease on the shared offline cache. Every IDE instance (and the headless uploader)
+ * shares ~/.codealike/cache-idea, so only the process holding this lease replays it.
+ * <p>
+ * The lease is an exclusive lock on a file in the codealike folder. The operating
+ * system releases it when the holder exits, so another instance takes over the
+ * replay on its next attempt.
+ * <p>
+ * Replay passes of this process may overlap (e.g. a flush starting before the
+ * release of the previous pass ran), so the lease counts its holders and the lock
+ * is only released by the last one.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ReplayLease {
+    private final File lockFile;
+    private FileChannel channel;
+    private FileLock lock;
+    // replay passes of this process holding the lease
+    private int holders;
+
+    /**
+     * Lease constructor.
+     *
+     * @param lockFile the file used as lock among processes
+     */
+    public ReplayLease(File lockFile) {
+        this.lockFile = lockFile;
+    }
+
+    /**
+     * Try to acquire the lease without blocking. Every successful call must be
+     * matched by a call to {@link #release()}.
+     *
+     * @return true if this process holds the lease, false if another process does
+     */
+    public synchronized boolean tryAcquire() {
+        if (isHeld()) {
+            holders++;
+            return true;
+        }
+        // a lock found invalid leaves its channel open
+        closeChannel();
+        try {
+            channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not acquire offline cache lease.");
+            lock = null;
+        }
+        if (lock == null) {
+            closeChannel();
+            return false;
+        }
+        holders++;
+        return true;
+    }
+
+    /**
+     * Check if this process holds the lease.
+     *
+     * @return true if the lease is held, false otherwise
+     */
+    public synchronized boolean isHeld() {
+        return lock != null && lock.isValid();
+    }
+
+    /**
+     * Release one hold on the lease. The lock is released once no holder is left.
+     */
+    public synchronized void release() {
+        if (holders > 1) {
+            holders--;
+            return;
+        }
+        holders = 0;
+        if (lock != null) {
+            try {
+                lock.release();
+            } catch (IOException e) {
+                LogManager.INSTANCE.logWarn(e, "Could not release offline cache lease.");
+            }
+            lock = null;
+        }
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LogManager.INSTANCE.logWarn(e, "Could not close offline cache lease.");
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.tracking;
+
+import com.codealike.client.core.internal.utils.LogManager;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Persistent ledger of activity batches already acknowledged by the server.
+ * Replay of cached batches consults it so a batch is never posted twice, even
+ * when the plugin dies between the server acknowledgement and the move of
+ * the cached file to history.
+ * <p>
+ * Batch ids are kept on disk in an open addressing hash table (16 bytes per
+ * slot) and mirrored in an in-memory Bloom filter, so lookups for batches
+ * never sent before do not touch the disk at all.
+ * <p>
+ * Every write bumps a sequence number in the file header. Other processes
+ * holding the ledger open compare it with the one they loaded when they
+ * take the replay lease, and reload on any change.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ReplayLedger {
+    // file header: magic, capacity, size, write sequence
+    private static final int MAGIC = 0x434C4C32;
+    private static final int HEADER_SIZE = 20;
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    // once this many batches are acknowledged the ledger starts a new generation
+    private static final int MAX_ENTRIES = 1 << 16;
+    private static final double BLOOM_FPP = 0.001;
+
+    private static final Funnel<UUID> UUID_FUNNEL = (uuid, into) -> into
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits());
+
+    private final File ledgerFile;
+    private final int maxEntries;
+    private long sequence;
+    private RandomAccessFile file;
+    private int capacity;
+    private int size;
+    private BloomFilter<UUID> filter;
+
+    /**
+     * Ledger constructor. The ledger is opened on first use.
+     *
+     * @param ledgerFile the file backing the ledger
+     */
+    public ReplayLedger(File ledgerFile) {
+        this(ledgerFile, MAX_ENTRIES);
+    }
+
+    /**
+     * Ledger constructor with a smaller generation, so tests reach it quickly.
+     *
+     * @param ledgerFile the file backing the ledger
+     * @param maxEntries the number of batches acknowledged before a new generation starts
+     */
+    ReplayLedger(File ledgerFile, int maxEntries) {
+        this.ledgerFile = ledgerFile;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Check if a batch was already acknowledged by the server.
+     *
+     * @param batchId the batch identifier
+     * @return true if the batch was acknowledged, false otherwise
+     */
+    public synchronized boolean contains(UUID batchId) {
+        if (batchId == null || !ensureOpen()) {
+            return false;
+        }
+        if (!filter.mightContain(batchId)) {
+            return false;
+        }
+        try {
+            return findSlot(batchId) < 0;
+        } catch (IOException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not read replay ledger.");
+            return false;
+        }
+    }
+
+    /**
+     * Record a batch as acknowledged by the server.
+     *
+     * @param batchId the batch identifier
+     */
+    public synchronized void record(UUID batchId) {
+        if (batchId == null || !ensureOpen()) {
+            return;
+        }
+        try {
+            if (filter.mightContain(batchId) && findSlot(batchId) < 0) {
+                return;
+            }
+            if (size + 1 > maxEntries) {
+                reset();
+            } else if ((size + 1) * 2 > capacity) {
+                resize(capacity * 2);
+            }
+
+            int slot = findSlot(batchId);
+            writeSlot(file.getChannel(), slot, batchId);
+            size++;
+            writeHeader(file.getChannel(), capacity, size, ++sequence);
+            file.getChannel().force(false);
+            filter.put(batchId);
+        } catch (IOException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not write replay ledger.");
+        }
+    }
+
+    /**
+     * Reload the ledger if another process wrote it since it was loaded.
+     */
+    public synchronized void refresh() {
+        if (file == null) {
+            return;
+        }
+        // read through the path, a resize by another process replaces the file
+        try (RandomAccessFile current = new RandomAccessFile(ledgerFile, "r")) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            current.getChannel().read(header, 0);
+            header.flip();
+            if (header.remaining() == HEADER_SIZE && header.getInt(0) == MAGIC
+                    && header.getLong(12) == sequence) {
+                return;
+            }
+        } catch (IOException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not read replay ledger.");
+        }
+        close();
+    }
+
+    /**
+     * Close the ledger file.
+     */
+    public synchronized void close() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                LogManager.INSTANCE.logWarn(e, "Could not close replay ledger.");
+            }
+            file = null;
+            filter = null;
+        }
+    }
+
+    private boolean ensureOpen() {
+        if (file != null) {
+            return true;
+        }
+        try {
+            if (!ledgerFile.exists() || ledgerFile.length() < HEADER_SIZE) {
+                create(ledgerFile, INITIAL_CAPACITY, 0);
+            }
+            file = new RandomAccessFile(ledgerFile, "rw");
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            file.getChannel().read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                // unknown content, start over
+                file.close();
+                create(ledgerFile, INITIAL_CAPACITY, 0);
+                file = new RandomAccessFile(ledgerFile, "rw");
+                header.clear();
+                file.getChannel().read(header, 0);
+                header.flip();
+                header.getInt();
+            }
+            capacity = header.getInt();
+            size = header.getInt();
+            sequence = header.getLong();
+            loadFilter();
+            return true;
+        } catch (IOException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not open replay ledger.");
+            file = null;
+            return false;
+        }
+    }
+
+    private void loadFilter() throws IOException {
+        filter = BloomFilter.create(UUID_FUNNEL, maxEntries, BLOOM_FPP);
+
+        ByteBuffer slots = ByteBuffer.allocate(capacity * SLOT_SIZE);
+        file.getChannel().read(slots, HEADER_SIZE);
+        slots.flip();
+        while (slots.remaining() >= SLOT_SIZE) {
+            long msb = slots.getLong();
+            long lsb = slots.getLong();
+            if (msb != 0 || lsb != 0) {
+                filter.put(new UUID(msb, lsb));
+            }
+        }
+    }
+
+    /*
+     *  findSlot:
+     *  Probes the table for the given batch id. Returns the index of the
+     *  first empty slot found, or -1 if the batch id is already stored.
+     */
+    private int findSlot(UUID batchId) throws IOException {
+        FileChannel channel = file.getChannel();
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+        int index = Math.floorMod(batchId.hashCode(), capacity);
+        for (int probes = 0; probes < capacity; probes++) {
+            slot.clear();
+            channel.read(slot, HEADER_SIZE + (long) index * SLOT_SIZE);
+            slot.flip();
+            long msb = slot.getLong();
+            long lsb = slot.getLong();
+            if (msb == 0 && lsb == 0) {
+                return index;
+            }
+            if (msb == batchId.getMostSignificantBits() && lsb == batchId.getLeastSignificantBits()) {
+                return -1;
+            }
+            index = (index + 1) % capacity;
+        }
+        throw new IOException("Replay ledger is full.");
+    }
+
+    private void resize(int newCapacity) throws IOException {
+        File resized = new File(ledgerFile.getParentFile(), ledgerFile.getName() + ".tmp");
+        create(resized, newCapacity, sequence);
+
+        ByteBuffer slots = ByteBuffer.allocate(capacity * SLOT_SIZE);
+        file.getChannel().read(slots, HEADER_SIZE);
+        slots.flip();
+
+        try (RandomAccessFile target = new RandomAccessFile(resized, "rw")) {
+            FileChannel channel = target.getChannel();
+            ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+            while (slots.remaining() >= SLOT_SIZE) {
+                long msb = slots.getLong();
+                long lsb = slots.getLong();
+                if (msb == 0 && lsb == 0) {
+                    continue;
+                }
+                UUID batchId = new UUID(msb, lsb);
+                int index = Math.floorMod(batchId.hashCode(), newCapacity);
+                while (true) {
+                    slot.clear();
+                    channel.read(slot, HEADER_SIZE + (long) index * SLOT_SIZE);
+                    slot.flip();
+                    if (slot.getLong() == 0 && slot.getLong() == 0) {
+                        break;
+                    }
+                    index = (index + 1) % newCapacity;
+                }
+                writeSlot(channel, index, batchId);
+            }
+            writeHeader(channel, newCapacity, size, sequence);
+            channel.force(true);
+        }
+
+        file.close();
+        Files.move(resized.toPath(), ledgerFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        file = new RandomAccessFile(ledgerFile, "rw");
+        capacity = newCapacity;
+    }
+
+    private void reset() throws IOException {
+        file.close();
+        create(ledgerFile, INITIAL_CAPACITY, sequence);
+        file = new RandomAccessFile(ledgerFile, "rw");
+        capacity = INITIAL_CAPACITY;
+        size = 0;
+        filter = BloomFilter.create(UUID_FUNNEL, maxEntries, BLOOM_FPP);
+    }
+
+    private static void create(File target, int capacity, long sequence) throws IOException {
+        try (RandomAccessFile created = new RandomAccessFile(target, "rw")) {
+            created.setLength(0);
+            created.setLength(HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            writeHeader(created.getChannel(), capacity, 0, sequence);
+            created.getChannel().force(true);
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, int capacity, int size, long sequence) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(capacity).putInt(size).putLong(sequence);
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    private static void writeSlot(FileChannel channel, int index, UUID batchId) throws IOException {
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+        slot.putLong(batchId.getMostSignificantBits()).putLong(batchId.getLeastSignificantBits());
+        slot.flip();
+        channel.write(slot, HEADER_SIZE + (long) index * SLOT_SIZE);
+    }
+}
@@ -13,19 +13,18 @@ import com.codealike.client.core.internal.startup.PluginContext;
 import com.codealike.client.core.internal.tracking.ActivitiesRecorder.FlushResult;
 import com.codealike.client.core.internal.tracking.code.ContextCreator;
 import com.codealike.client.core.internal.utils.LogManager;
+import com.codealike.client.core.internal.utils.PluginScheduler;
 import com.codealike.client.core.internal.utils.TrackingConsole;
+import com.codealike.client.intellij.CodealikeApplicationService;
 import com.codealike.client.intellij.EventListeners.CustomCaretListener;
 import com.codealike.client.intellij.EventListeners.CustomDocumentListener;
 import com.codealike.client.intellij.EventListeners.CustomEditorMouseListener;
-import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.EditorFactory;
-import com.intellij.openapi.editor.event.CaretListener;
-import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.editor.event.EditorEventMulticaster;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.util.PsiTreeUtil;
@@ -33,8 +32,6 @@ import org.joda.time.DateTime;
 import org.joda.time.Period;
 
 import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -50,11 +47,12 @@ public class StateTracker {
 
     private ActivityEvent lastEvent;
     private ContextCreator contextCreator;
-    private ScheduledExecutorService idleDetectionExecutor;
+    private PluginScheduler.ScheduledTask idleDetection;
 
-    private DocumentListener documentListener;
-    private CaretListener caretListener;
-    private CustomEditorMouseListener editorMouseListener;
+    // editor listeners, registered once per tracking session and
+    // removed with the application service when the plugin is unloaded
+    private final ListenerLifecycle listeners = new ListenerLifecycle("Tracking listeners",
+            CodealikeApplicationService.getInstance());
 
     public StateTracker() {
         contextCreator = PluginContext.getInstance().getContextCreator();
@@ -205,66 +203,26 @@ public class StateTracker {
     }
 
     public void startTracking() {
-        documentListener = new CustomDocumentListener();
-        caretListener = new CustomCaretListener();
-        editorMouseListener = new CustomEditorMouseListener();
-        Disposable disposable = Disposer.newDisposable();
-
-        ApplicationManager.getApplication().invokeLater(() -> {
-
-            EditorFactory
-                    .getInstance()
-                    .getEventMulticaster()
-                    .addDocumentListener(documentListener, disposable);
-
-            EditorFactory
-                    .getInstance()
-                    .getEventMulticaster()
-                    .addCaretListener(caretListener, disposable);
-
-            EditorFactory
-                    .getInstance()
-                    .getEventMulticaster()
-                    .addEditorMouseListener(editorMouseListener, disposable);
+        listeners.attach(lifecycle -> {
+            EditorEventMulticaster multicaster = EditorFactory.getInstance().getEventMulticaster();
+            lifecycle.register(new CustomDocumentListener(), multicaster::addDocumentListener);
+            lifecycle.register(new CustomCaretListener(), multicaster::addCaretListener);
+            lifecycle.register(new CustomEditorMouseListener(), multicaster::addEditorMouseListener);
         });
 
         startIdleDetection();
     }
 
     public void stopTracking() {
-        ApplicationManager.getApplication().invokeLater(() -> {
-
-            if (documentListener != null) {
-                EditorFactory
-                        .getInstance()
-                        .getEventMulticaster()
-                        .removeDocumentListener(documentListener);
-            }
-
-            if (caretListener != null) {
-                EditorFactory
-                        .getInstance()
-                        .getEventMulticaster()
-                        .removeCaretListener(caretListener);
-            }
-
-            if (editorMouseListener != null) {
-                EditorFactory
-                        .getInstance()
-                        .getEventMulticaster()
-                        .removeEditorMouseListener(editorMouseListener);
-            }
-        });
+        listeners.detach();
 
         stopIdleDetection();
     }
 
-    private void startIdleDetection() {
-        if (this.idleDetectionExecutor != null)
+    private synchronized void startIdleDetection() {
+        if (this.idleDetection != null)
             return;
 
-        this.idleDetectionExecutor = Executors.newScheduledThreadPool(1);
-
         Runnable idlePeriodicTask = new Runnable() {
 
             @Override
@@ -279,13 +237,14 @@ public class StateTracker {
         };
 
         int idleDetectionPeriod = PluginContext.getInstance().getConfiguration().getIdleCheckInterval();
-        this.idleDetectionExecutor.scheduleAtFixedRate(idlePeriodicTask, idleDetectionPeriod, idleDetectionPeriod, TimeUnit.MILLISECONDS);
+        this.idleDetection = PluginScheduler.getInstance().scheduleWithFixedDelay("idle detection", idlePeriodicTask,
+                idleDetectionPeriod, idleDetectionPeriod, TimeUnit.MILLISECONDS);
     }
 
-    private void stopIdleDetection() {
-        if (this.idleDetectionExecutor != null) {
-            this.idleDetectionExecutor.shutdownNow();
-            this.idleDetectionExecutor = null;
+    private synchronized void stopIdleDetection() {
+        if (this.idleDetection != null) {
+            this.idleDetection.cancel();
+            this.idleDetection = null;
         }
     }
 
@@ -308,6 +267,14 @@ public class StateTracker {
         }
     }
 
+    public void persist() {
+        try {
+            this.recorder.persist();
+        } catch (Exception e) {
+            LogManager.INSTANCE.logError(e, "Couldn't store data locally.");
+        }
+    }
+
     public FlushResult flush(String identity, String token) {
         try {
             return this.recorder.flush(identity, token);
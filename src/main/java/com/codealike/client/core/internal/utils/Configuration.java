@@ -9,19 +9,33 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.text.Format;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class Configuration {
-    private ObjectMapper mapper = new ObjectMapper();
+    public static final String CACHE_FOLDER = "cache-idea";
+    public static final String HISTORY_FOLDER = "history";
+    public static final String GLOBAL_SETTINGS_FILE = "user.json";
+    public static final String REPLAY_LEDGER_FILE = "replay-ledger.bin";
+    public static final String REPLAY_LOCK_FILE = "replay.lock";
+    public static final String RESPONSE_CACHE_FILE = "response-cache.json";
+    public static final String PLUGIN_SETTINGS_FILE = "plugin-settings.json";
+    public static final String SESSION_FILE = "session.json";
+    public static final String REGISTRATION_QUEUE_FILE = "pending-registrations.json";
+
     private GlobalSettings globalSettings = new GlobalSettings();
-    private PluginSettings pluginSettings = new PluginSettings();
+    // replaced as a whole when new settings arrive, never modified in place
+    private volatile PluginSettings pluginSettings = new PluginSettings();
+    // false while running on default plugin settings
+    private volatile boolean pluginSettingsLoaded;
+    private SessionStore sessionStore;
 
     private File codealikeBasePath;
     private File historyPath;
@@ -40,8 +54,15 @@ public class Configuration {
         this.clientId = clientId;
         this.clientVersion = clientVersion;
         this.instanceId = instanceId;
+
+        this.sessionStore = new SessionStore(new File(this.codealikeBasePath, SESSION_FILE));
     }
 
+    /*
+     *  loadPluginSettings:
+     *  This method applies plugin settings received from the server
+     *  and stores them so next startup can use them without network access
+     */
     public void loadPluginSettings(PluginSettingsInfo newSettings) {
         PluginSettings settings = new PluginSettings();
 
@@ -56,6 +77,33 @@ public class Configuration {
         if (newSettings.getIdleMaxPeriod() != 0) {
             settings.setIdleMaxPeriod(newSettings.getIdleMaxPeriod());
         }
+
+        this.pluginSettings = settings;
+        this.pluginSettingsLoaded = true;
+        this.saveSettings(new File(this.codealikeBasePath, PLUGIN_SETTINGS_FILE), settings);
+    }
+
+    /*
+     *  loadStoredPluginSettings:
+     *  This method loads the last plugin settings received from the server,
+     *  keeping the defaults if there are none
+     */
+    public void loadStoredPluginSettings() {
+        File pluginSettingsFile = new File(this.codealikeBasePath, PLUGIN_SETTINGS_FILE);
+
+        try {
+            if (Files.exists(pluginSettingsFile.toPath())) {
+                try (FileInputStream stream = new FileInputStream(pluginSettingsFile)) {
+                    PluginSettings storedSettings = MapperHolder.MAPPER.readValue(stream, PluginSettings.class);
+                    if (storedSettings != null) {
+                        this.pluginSettings = storedSettings;
+                        this.pluginSettingsLoaded = true;
+                    }
+                }
+            }
+        } catch (IOException exception) {
+            LogManager.INSTANCE.logWarn(exception, "Could not read stored plugin settings, using defaults.");
+        }
     }
 
     /*
@@ -65,16 +113,20 @@ public class Configuration {
      *  should been loaded
      */
     public void loadGlobalSettings() {
-        File codealikeSettingsFile = new File(this.codealikeBasePath, "user.json");
+        File codealikeSettingsFile = new File(this.codealikeBasePath, GLOBAL_SETTINGS_FILE);
 
         try {
             if (Files.exists(codealikeSettingsFile.toPath())) {
-                ObjectMapper mapper = new ObjectMapper();
-                GlobalSettings existingConfiguration = mapper.readValue(new FileInputStream(codealikeSettingsFile), GlobalSettings.class);
+                GlobalSettings existingConfiguration = MapperHolder.MAPPER.readValue(new FileInputStream(codealikeSettingsFile), GlobalSettings.class);
 
                 if (existingConfiguration != null) {
                     this.globalSettings.setUserToken(existingConfiguration.getUserToken());
                     this.globalSettings.setApiUrl(Optional.ofNullable(existingConfiguration.getApiUrl()).orElse("https://codealike.com/api/v2"));
+                    this.globalSettings.setHttpTransport(Optional.ofNullable(existingConfiguration.getHttpTransport()).orElse("jersey"));
+                    this.globalSettings.setPersistResponseCache(existingConfiguration.getPersistResponseCache());
+                    if (existingConfiguration.getMaxPayloadSize() > 0) {
+                        this.globalSettings.setMaxPayloadSize(existingConfiguration.getMaxPayloadSize());
+                    }
                 } else {
                     this.globalSettings.setUserToken(null);
                     this.globalSettings.setApiUrl("https://codealike.com/api/v2");
@@ -90,8 +142,8 @@ public class Configuration {
      *  This method saves current running instance settings
      *  to the codealike user folder
      */
-    public void saveCurrentGlobalSettings() {
-        this.saveGlobalSettings(this.globalSettings);
+    public CompletableFuture<File> saveCurrentGlobalSettings() {
+        return this.saveGlobalSettings(this.globalSettings);
     }
 
     /*
@@ -99,34 +151,10 @@ public class Configuration {
      *  This method saves user settings configured in current configuration instance
      *  to the codealike user folder
      */
-    public void saveGlobalSettings(GlobalSettings settings) {
-        File codealikeSettingsFile = new File(this.codealikeBasePath, "user.json");
+    public CompletableFuture<File> saveGlobalSettings(GlobalSettings settings) {
+        File codealikeSettingsFile = new File(this.codealikeBasePath, GLOBAL_SETTINGS_FILE);
 
-        String jsonString = null;
-        FileOutputStream stream = null;
-        try {
-            // convert object to string
-            jsonString = mapper.writeValueAsString(this.globalSettings);
-
-            // if registered, save configuration file
-            // have to save configuration file
-            stream = new FileOutputStream(codealikeSettingsFile);
-            stream.write(jsonString.getBytes(Charset.forName("UTF-8")));
-            stream.close();
-        } catch (JsonProcessingException jsonEx) {
-            // check what to do if this fails
-        } catch (IOException exception) {
-            // check what to do if this fails
-        } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (IOException e) {
-                    // check what to do if this fails
-                    e.printStackTrace();
-                }
-            }
-        }
+        return this.saveSettings(codealikeSettingsFile, this.globalSettings);
     }
 
     public ProjectSettings loadProjectSettings(String projectFolderPath) {
@@ -135,8 +163,7 @@ public class Configuration {
 
         try {
             if (Files.exists(codealikeProjectFile.toPath())) {
-                ObjectMapper mapper = new ObjectMapper();
-                projectSettings = mapper.readValue(new FileInputStream(codealikeProjectFile), ProjectSettings.class);
+                projectSettings = MapperHolder.MAPPER.readValue(new FileInputStream(codealikeProjectFile), ProjectSettings.class);
             }
         } catch (IOException exception) {
             // check what to do if this fails
@@ -145,33 +172,26 @@ public class Configuration {
         return projectSettings;
     }
 
-    public void saveProjectSettings(String projectFolderPath, ProjectSettings projectSettings) {
+    public CompletableFuture<File> saveProjectSettings(String projectFolderPath, ProjectSettings projectSettings) {
         File codealikeProjectFile = new File(projectFolderPath, "codealike.json");
 
-        String jsonString = null;
-        FileOutputStream stream = null;
+        return this.saveSettings(codealikeProjectFile, projectSettings);
+    }
+
+    /*
+     *  saveSettings
+     *  This method serializes the settings on the calling thread and
+     *  queues the file write in the local I/O executor
+     */
+    private CompletableFuture<File> saveSettings(File settingsFile, Object settings) {
         try {
             // convert object to string
-            jsonString = mapper.writeValueAsString(projectSettings);
+            String jsonString = MapperHolder.MAPPER.writeValueAsString(settings);
 
-            // if registered, save configuration file
-            // have to save configuration file
-            stream = new FileOutputStream(codealikeProjectFile);
-            stream.write(jsonString.getBytes(Charset.forName("UTF-8")));
-            stream.close();
+            return LocalIOExecutor.getInstance().write(settingsFile, jsonString.getBytes(StandardCharsets.UTF_8));
         } catch (JsonProcessingException jsonEx) {
             // check what to do if this fails
-        } catch (IOException exception) {
-            // check what to do if this fails
-        } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (IOException e) {
-                    // check what to do if this fails
-                    e.printStackTrace();
-                }
-            }
+            return CompletableFuture.failedFuture(jsonEx);
         }
     }
 
@@ -187,14 +207,15 @@ public class Configuration {
         return this.pluginSettings.getFlushInterval();
     }
 
-    public File getHistoryFile() {
+    public File getHistoryFile(UUID batchId) {
         Format formatter = new SimpleDateFormat("YYYYMMDDhhmmss");
-        return new File(historyPath, clientId + "-" + formatter.format(new Date()) + ".json");
+        return new File(historyPath, clientId + "-" + formatter.format(new Date()) + "-" + batchId + ".json");
     }
 
-    public File getCacheFile() {
+    public File getCacheFile(UUID batchId) {
+        // batch id is part of the name so batches stored within the same second do not overwrite each other
         Format formatter = new SimpleDateFormat("YYYYMMDDhhmmss");
-        return new File(cachePath, clientId + "-" + formatter.format(new Date()) + ".json");
+        return new File(cachePath, clientId + "-" + formatter.format(new Date()) + "-" + batchId + ".json");
     }
 
     public boolean getTrackSent() {
@@ -213,10 +234,31 @@ public class Configuration {
         return instancePath;
     }
 
+    public File getReplayLedgerFile() {
+        return new File(codealikeBasePath, REPLAY_LEDGER_FILE);
+    }
+
+    public File getReplayLockFile() {
+        return new File(codealikeBasePath, REPLAY_LOCK_FILE);
+    }
+
+    public File getResponseCacheFile() {
+        // null when responses should only be cached in memory
+        return globalSettings.getPersistResponseCache() ? new File(codealikeBasePath, RESPONSE_CACHE_FILE) : null;
+    }
+
+    public int getMaxPayloadSize() {
+        return this.globalSettings.getMaxPayloadSize();
+    }
+
     public String getApiUrl() {
         return this.globalSettings.getApiUrl();
     }
 
+    public String getHttpTransport() {
+        return this.globalSettings.getHttpTransport();
+    }
+
     public String getUserToken() {
         return this.globalSettings.getUserToken();
     }
@@ -225,6 +267,31 @@ public class Configuration {
         this.globalSettings.setUserToken(userToken);
     }
 
+    public PluginSettings getPluginSettings() {
+        return this.pluginSettings;
+    }
+
+    /*
+     *  restorePluginSettings:
+     *  This method applies plugin settings from a session snapshot,
+     *  unless settings were already stored or received from the server
+     */
+    public void restorePluginSettings(PluginSettings settings) {
+        if (settings != null && !this.pluginSettingsLoaded) {
+            this.pluginSettings = settings;
+            this.pluginSettingsLoaded = true;
+        }
+    }
+
+    public File getRegistrationQueueFile() {
+        // kept per client, instance folders do not outlive the IDE process
+        return new File(new File(codealikeBasePath, clientId), REGISTRATION_QUEUE_FILE);
+    }
+
+    public SessionStore getSessionStore() {
+        return this.sessionStore;
+    }
+
     private void ensurePathExists(File path) {
         // ensure codealike base path exists
         if (!Files.exists(path.toPath())) {
@@ -236,8 +303,16 @@ public class Configuration {
         }
     }
 
+    /*
+     *  getDefaultBasePath
+     *  Returns the codealike user folder shared by every client and instance
+     */
+    public static File getDefaultBasePath() {
+        return new File(System.getProperty("user.home"), ".codealike");
+    }
+
     private void createRequiredPaths(String clientId, String instanceId) {
-        File basePath = new File(System.getProperty("user.home"), ".codealike");
+        File basePath = getDefaultBasePath();
         this.ensurePathExists(basePath);
 
         File clientPath = new File(basePath, clientId);
@@ -246,10 +321,10 @@ public class Configuration {
         File instancePath = new File(clientPath, instanceId);
         this.ensurePathExists(instancePath);
 
-        File cachePath = new File(basePath, "cache-idea");
+        File cachePath = new File(basePath, CACHE_FOLDER);
         this.ensurePathExists(cachePath);
 
-        File historyPath = new File(basePath, "history");
+        File historyPath = new File(basePath, HISTORY_FOLDER);
         this.ensurePathExists(historyPath);
 
         this.codealikeBasePath = basePath;
@@ -257,4 +332,9 @@ public class Configuration {
         this.cachePath = cachePath;
         this.instancePath = instancePath;
     }
+
+    // created on first use, nothing is read or written on startup when there are no settings
+    private static class MapperHolder {
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+    }
 }
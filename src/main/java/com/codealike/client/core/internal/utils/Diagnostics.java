@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registry of diagnostic sections (connectivity, transport, caches, ...). Each
+ * component registers a supplier describing its current state, and the whole
+ * registry is rendered on demand, e.g. by the Diagnostics action.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class Diagnostics {
+    // Singleton instance
+    private static Diagnostics _instance;
+
+    private final Map<String, Supplier<String>> sections = new LinkedHashMap<>();
+
+    /**
+     * Get the singleton {@link Diagnostics} instance. If it doesn't exist, one is created.
+     *
+     * @return the {@link Diagnostics} instance
+     */
+    public static synchronized Diagnostics getInstance() {
+        if (_instance == null) {
+            _instance = new Diagnostics();
+        }
+        return _instance;
+    }
+
+    /**
+     * Register a section. A section registered again replaces the previous one.
+     *
+     * @param name     the section name
+     * @param provider describes the current state, called on every dump
+     */
+    public synchronized void register(String name, Supplier<String> provider) {
+        sections.put(name, provider);
+    }
+
+    /**
+     * Remove a section.
+     *
+     * @param name the section name
+     */
+    public synchronized void unregister(String name) {
+        sections.remove(name);
+    }
+
+    /**
+     * Render every section, in registration order.
+     *
+     * @return the diagnostics text
+     */
+    public String dump() {
+        Map<String, Supplier<String>> snapshot;
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(sections);
+        }
+
+        StringBuilder dump = new StringBuilder();
+        for (Map.Entry<String, Supplier<String>> section : snapshot.entrySet()) {
+            dump.append("== ").append(section.getKey()).append(" ==").append(System.lineSeparator());
+            try {
+                dump.append(section.getValue().get());
+            } catch (Exception e) {
+                dump.append("unavailable: ").append(e);
+            }
+            dump.append(System.lineSeparator()).append(System.lineSeparator());
+        }
+        return dump.toString();
+    }
+}
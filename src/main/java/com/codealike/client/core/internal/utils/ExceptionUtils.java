@@ -13,6 +13,9 @@ import java.io.StringWriter;
  * @version 1.6.0.0
  */
 public class ExceptionUtils {
+    // stack frames of each throwable taken into account by the fingerprint
+    private static final int FINGERPRINT_FRAMES = 8;
+    private static final int FINGERPRINT_CAUSES = 4;
 
     /**
      * Convert an exception stack trace to a string message.
@@ -29,4 +32,27 @@ public class ExceptionUtils {
 
         return sw.toString();
     }
+
+    /**
+     * Get a fingerprint of where an exception comes from: the exception classes of
+     * the cause chain and their top stack frames. Exception messages and line numbers
+     * are left out, so repeated failures of the same code share a fingerprint.
+     *
+     * @param t the throwable
+     * @return the fingerprint
+     */
+    public static String fingerprint(Throwable t) {
+        StringBuilder fingerprint = new StringBuilder();
+        Throwable current = t;
+        // bounded, cause chains may be cyclic
+        for (int depth = 0; current != null && depth < FINGERPRINT_CAUSES; depth++, current = current.getCause()) {
+            fingerprint.append(current.getClass().getName());
+            StackTraceElement[] frames = current.getStackTrace();
+            for (int i = 0; i < Math.min(FINGERPRINT_FRAMES, frames.length); i++) {
+                fingerprint.append('|').append(frames[i].getClassName()).append('.').append(frames[i].getMethodName());
+            }
+            fingerprint.append(';');
+        }
+        return fingerprint.toString();
+    }
 }
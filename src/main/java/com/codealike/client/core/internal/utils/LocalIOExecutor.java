@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Local I/O executor. All local persistence (cache, history, settings) is queued
+ * here and executed one operation at a time in a {@link PluginScheduler} lane, so
+ * callers never block on disk.
+ * <p>
+ * Queued writes are batched: every file of a batch is written to a temporary file
+ * first, then all of them are synced together and atomically renamed into place.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class LocalIOExecutor {
+    // max number of operations grouped in a single batch
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Singleton instance
+    private static LocalIOExecutor _instance;
+
+    private final BlockingQueue<Operation<?>> queue = new LinkedBlockingQueue<>();
+    private final Executor lane = PluginScheduler.getInstance().lane("Local I/O");
+
+    private LocalIOExecutor() {
+    }
+
+    /**
+     * Get the singleton {@link LocalIOExecutor} instance. If it doesn't exist, one is created.
+     *
+     * @return the {@link LocalIOExecutor} instance
+     */
+    public static synchronized LocalIOExecutor getInstance() {
+        if (_instance == null) {
+            _instance = new LocalIOExecutor();
+        }
+        return _instance;
+    }
+
+    /**
+     * Check if a file is a temporary file of a write still in progress.
+     *
+     * @param file the file to check
+     * @return true if the file is a temporary file, false otherwise
+     */
+    public static boolean isTemporary(File file) {
+        return file.getName().endsWith(TEMP_SUFFIX);
+    }
+
+    /**
+     * Queue a file write. Content replaces the file atomically once synced.
+     *
+     * @param target  the file to write
+     * @param content the file content
+     * @return a future completed with the written file
+     */
+    public CompletableFuture<File> write(File target, byte[] content) {
+        return enqueue(new WriteOperation(target, content));
+    }
+
+    /**
+     * Queue a file move. Executed after every previously queued operation.
+     *
+     * @param source the file to move
+     * @param target the destination file
+     * @return a future completed with the destination file
+     */
+    public CompletableFuture<File> move(File source, File target) {
+        return submit(() -> {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        });
+    }
+
+    /**
+     * Queue any other local I/O task. Executed after every previously queued operation.
+     *
+     * @param task the task to execute
+     * @return a future completed with the task result
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return enqueue(new TaskOperation<>(task));
+    }
+
+    /**
+     * Wait until every queued operation has been executed.
+     *
+     * @param timeout the max time to wait
+     * @param unit    the timeout unit
+     * @return true if the queue was drained, false if the timeout elapsed
+     */
+    public boolean drain(long timeout, TimeUnit unit) {
+        try {
+            submit(() -> null).get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * Get the number of operations waiting to be executed.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private <T> CompletableFuture<T> enqueue(Operation<T> operation) {
+        queue.add(operation);
+        lane.execute(this::processQueue);
+        return operation.future;
+    }
+
+    /*
+     *  processQueue:
+     *  Executes the operations queued so far as one batch. Every operation
+     *  queues a run, so a run finding the queue empty has nothing left to do.
+     */
+    private void processQueue() {
+        List<Operation<?>> batch = new ArrayList<>();
+        queue.drainTo(batch, MAX_BATCH_SIZE);
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            processBatch(batch);
+        } catch (Throwable t) {
+            LogManager.INSTANCE.logError(t, "There was a problem storing data locally.");
+        }
+    }
+
+    /*
+     *  processBatch:
+     *  Consecutive writes are committed as a group (single sync pass and
+     *  rename), any other operation runs in queue order in between groups.
+     */
+    private void processBatch(List<Operation<?>> batch) {
+        List<WriteOperation> group = new ArrayList<>();
+        for (Operation<?> operation : batch) {
+            if (operation instanceof WriteOperation) {
+                WriteOperation write = (WriteOperation) operation;
+                // two writes of the same file can not share a group
+                if (group.stream().anyMatch(queued -> queued.target.equals(write.target))) {
+                    commit(group);
+                }
+                group.add(write);
+            } else {
+                commit(group);
+                ((TaskOperation<?>) operation).run();
+            }
+        }
+        commit(group);
+    }
+
+    private void commit(List<WriteOperation> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            // write every file of the group
+            for (WriteOperation write : group) {
+                try {
+                    FileChannel channel = FileChannel.open(write.temporary().toPath(), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    channels.add(channel);
+                    ByteBuffer buffer = ByteBuffer.wrap(write.content);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    write.channel = channel;
+                } catch (IOException e) {
+                    write.future.completeExceptionally(e);
+                }
+            }
+
+            // then sync them together
+            for (WriteOperation write : group) {
+                if (write.channel != null) {
+                    try {
+                        write.channel.force(false);
+                    } catch (IOException e) {
+                        write.future.completeExceptionally(e);
+                    }
+                }
+            }
+        } finally {
+            for (FileChannel channel : channels) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        // and finally move them into place
+        for (WriteOperation write : group) {
+            if (write.future.isDone()) {
+                write.temporary().delete();
+                continue;
+            }
+            try {
+                Files.move(write.temporary().toPath(), write.target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                write.future.complete(write.target);
+            } catch (IOException e) {
+                write.future.completeExceptionally(e);
+            }
+        }
+        group.clear();
+    }
+
+    private abstract static class Operation<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+    }
+
+    private static class WriteOperation extends Operation<File> {
+        final File target;
+        final byte[] content;
+        FileChannel channel;
+
+        WriteOperation(File target, byte[] content) {
+            this.target = target;
+            this.content = content;
+        }
+
+        File temporary() {
+            return new File(target.getParentFile(), target.getName() + TEMP_SUFFIX);
+        }
+    }
+
+    private static class TaskOperation<T> extends Operation<T> {
+        final Callable<T> task;
+
+        TaskOperation(Callable<T> task) {
+            this.task = task;
+        }
+
+        void run() {
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+}
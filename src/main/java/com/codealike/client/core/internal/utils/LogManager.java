@@ -5,8 +5,12 @@ package com.codealike.client.core.internal.utils;
 
 import com.intellij.openapi.diagnostic.Logger;
 
+import java.util.logging.Level;
+
 /**
  * Log manager class. This class will be used to log messages to console.
+ * Messages go to the IDE log when running inside the IDE, and to
+ * java.util.logging when running headless (e.g. the cache uploader).
  *
  * @author Daniel, pvmagacho
  * @version 1.6.0.0
@@ -14,28 +18,94 @@ import com.intellij.openapi.diagnostic.Logger;
 @SuppressWarnings("restriction")
 public class LogManager {
     public static final LogManager INSTANCE = new LogManager();
-    private static final Logger logger = Logger.getInstance("Codealike");
+    private static final String PREFIX = "CodealikeApplicationComponent: ";
+
+    private final LogSink sink;
 
     public LogManager() {
+        this.sink = isIdeAvailable() ? new IdeLogSink() : new ConsoleLogSink();
     }
 
     public void logError(String msg) {
-        logger.error("CodealikeApplicationComponent: " + msg);
+        sink.error(PREFIX + msg, null);
     }
 
     public void logError(Throwable t, String msg) {
-        logger.error("CodealikeApplicationComponent: " + msg, t);
+        sink.error(PREFIX + msg, t);
     }
 
     public void logWarn(String msg) {
-        logger.warn("CodealikeApplicationComponent: " + msg);
+        sink.warn(PREFIX + msg, null);
     }
 
     public void logWarn(Throwable t, String msg) {
-        logger.warn("CodealikeApplicationComponent: " + msg, t);
+        sink.warn(PREFIX + msg, t);
     }
 
     public void logInfo(String msg) {
-        logger.info("CodealikeApplicationComponent: " + msg);
+        sink.info(PREFIX + msg);
+    }
+
+    private static boolean isIdeAvailable() {
+        try {
+            Class.forName("com.intellij.openapi.diagnostic.Logger", false, LogManager.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private interface LogSink {
+        void error(String msg, Throwable t);
+
+        void warn(String msg, Throwable t);
+
+        void info(String msg);
+    }
+
+    private static class IdeLogSink implements LogSink {
+        private final Logger logger = Logger.getInstance("Codealike");
+
+        @Override
+        public void error(String msg, Throwable t) {
+            if (t == null) {
+                logger.error(msg);
+            } else {
+                logger.error(msg, t);
+            }
+        }
+
+        @Override
+        public void warn(String msg, Throwable t) {
+            if (t == null) {
+                logger.warn(msg);
+            } else {
+                logger.warn(msg, t);
+            }
+        }
+
+        @Override
+        public void info(String msg) {
+            logger.info(msg);
+        }
+    }
+
+    private static class ConsoleLogSink implements LogSink {
+        private final java.util.logging.Logger logger = java.util.logging.Logger.getLogger("Codealike");
+
+        @Override
+        public void error(String msg, Throwable t) {
+            logger.log(Level.SEVERE, msg, t);
+        }
+
+        @Override
+        public void warn(String msg, Throwable t) {
+            logger.log(Level.WARNING, msg, t);
+        }
+
+        @Override
+        public void info(String msg) {
+            logger.info(msg);
+        }
     }
 }
@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every plugin background task (idle detection, activity flush timing, health
+ * telemetry, connectivity probes, project registrations, service events and
+ * local I/O) on a fixed set of named daemon threads.
+ * <p>
+ * Delayed and periodic tasks are kept in a hashed timer wheel of {@link #WHEEL_SIZE}
+ * buckets of {@link #TICK} milliseconds, driven by a single timer thread that waits
+ * while no task is scheduled. A task never runs early and runs at most one tick
+ * late. Due tasks, and tasks executed right away, run in a
+ * bounded pool of at most {@link #MAX_WORKERS} workers, which are created on demand
+ * and end when idle. A {@link #lane(String) lane} runs its tasks one at a time, in
+ * submission order, on the same pool. Tasks should not block on the network: the
+ * activity flush, which does, is only timed here and runs on its own thread.
+ * <p>
+ * Once {@link #shutdown()} is called, scheduled tasks are cancelled, tasks already
+ * queued still run, new delayed tasks are ignored and tasks executed right away run
+ * on the calling thread, so late local writes are not lost.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class PluginScheduler {
+    // timer wheel resolution (in milliseconds) and number of buckets
+    public static final long TICK = 50;
+    public static final int WHEEL_SIZE = 512;
+    public static final int MAX_WORKERS = 4;
+    private static final long WORKER_KEEP_ALIVE = 30000;
+    private static final long SHUTDOWN_TIMEOUT = 2000;
+    // tasks a lane runs before giving its worker back to other tasks
+    private static final int LANE_BATCH = 32;
+
+    private static PluginScheduler _instance;
+
+    private final long start = System.nanoTime();
+    private final List<Timeout>[] wheel;
+    // added by any thread, moved to the wheel by the timer thread
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Object timerLock = new Object();
+    private final ThreadPoolExecutor workers;
+    private final List<Lane> lanes = new CopyOnWriteArrayList<>();
+    private Thread timer;
+    private long tick;
+    private volatile boolean closed;
+
+    // metrics
+    private final AtomicInteger timers = new AtomicInteger();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    private PluginScheduler() {
+        this.wheel = new List[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            this.wheel[i] = new LinkedList<>();
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, WORKER_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "Codealike Worker " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get the singleton {@link PluginScheduler} instance. If it doesn't exist, one is created.
+     * No thread is started until a task is submitted.
+     *
+     * @return the {@link PluginScheduler} instance
+     */
+    public static synchronized PluginScheduler getInstance() {
+        if (_instance == null) {
+            _instance = new PluginScheduler();
+            Diagnostics.getInstance().register("Scheduler", _instance::toString);
+        }
+        return _instance;
+    }
+
+    /**
+     * Run a task in the worker pool.
+     *
+     * @param name the task name, used in logs
+     * @param task the task
+     */
+    public void execute(String name, Runnable task) {
+        dispatch(() -> run(name, task));
+    }
+
+    /**
+     * Run a task once after the given delay.
+     *
+     * @param name  the task name, used in logs
+     * @param task  the task
+     * @param delay the delay
+     * @param unit  the delay unit
+     * @return the scheduled task, used to cancel it
+     */
+    public ScheduledTask schedule(String name, Runnable task, long delay, TimeUnit unit) {
+        return add(new Timeout(name, task, unit.toNanos(delay), -1));
+    }
+
+    /**
+     * Run a task periodically. The delay is counted from the end of the previous run,
+     * so runs never overlap.
+     *
+     * @param name         the task name, used in logs
+     * @param task         the task
+     * @param initialDelay the delay before the first run
+     * @param delay        the delay between the end of a run and the start of the next one
+     * @param unit         the delays unit
+     * @return the scheduled task, used to cancel it
+     */
+    public ScheduledTask scheduleWithFixedDelay(String name, Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        return add(new Timeout(name, task, unit.toNanos(initialDelay), unit.toNanos(delay)));
+    }
+
+    /**
+     * Create a lane: an executor running its tasks one at a time, in submission
+     * order, in the worker pool.
+     *
+     * @param name the lane name, used in logs and diagnostics
+     * @return the lane
+     */
+    public Executor lane(String name) {
+        Lane lane = new Lane(name);
+        lanes.add(lane);
+        return lane;
+    }
+
+    /**
+     * Get the number of tasks waiting for a worker, lanes included.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        int depth = workers.getQueue().size();
+        for (Lane lane : lanes) {
+            depth += lane.tasks.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Cancel scheduled tasks and stop the timer and the workers, waiting a short
+     * time for queued tasks. Called when the application shuts down.
+     */
+    public void shutdown() {
+        synchronized (timerLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            timerLock.notifyAll();
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                LogManager.INSTANCE.logWarn(String.format("Scheduler stopped with %d tasks still queued.", workers.getQueue().size()));
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder(String.format(
+                "%d timers, %d/%d workers (%d busy), queue depth %d, %d tasks executed (%d failed)",
+                timers.get(), workers.getPoolSize(), MAX_WORKERS, workers.getActiveCount(), getQueueDepth(),
+                executed.get(), failed.get()));
+        for (Lane lane : lanes) {
+            description.append(String.format("%n%s lane: %d queued", lane.name, lane.tasks.size()));
+        }
+        if (closed) {
+            description.append(System.lineSeparator()).append("Shut down.");
+        }
+        return description.toString();
+    }
+
+    private void dispatch(Runnable runnable) {
+        if (closed) {
+            runnable.run();
+            return;
+        }
+        try {
+            workers.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            // shut down meanwhile
+            runnable.run();
+        }
+    }
+
+    private void run(String name, Runnable task) {
+        try {
+            task.run();
+            executed.incrementAndGet();
+        } catch (Throwable t) {
+            failed.incrementAndGet();
+            LogManager.INSTANCE.logError(t, String.format("Background task %s failed.", name));
+        }
+    }
+
+    private ScheduledTask add(Timeout timeout) {
+        synchronized (timerLock) {
+            if (closed) {
+                timeout.cancel();
+                return timeout;
+            }
+            timers.incrementAndGet();
+            added.add(timeout);
+            if (timer == null) {
+                timer = new Thread(this::runTimer, "Codealike Scheduler");
+                timer.setDaemon(true);
+                timer.start();
+            }
+            timerLock.notifyAll();
+        }
+        return timeout;
+    }
+
+    /*
+     *  runTimer:
+     *  Advances the wheel one tick at a time, moving added tasks to their
+     *  bucket and handing due ones to the workers. Waits while there is
+     *  nothing scheduled instead of ticking.
+     */
+    private void runTimer() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK);
+        try {
+            while (!closed) {
+                long now = (System.nanoTime() - start) / tickNanos;
+                while (tick < now && !closed) {
+                    tick++;
+                    transferAdded();
+                    expire(wheel[(int) (tick & (WHEEL_SIZE - 1))]);
+                }
+
+                synchronized (timerLock) {
+                    if (closed) {
+                        break;
+                    }
+                    if (timers.get() == 0 && added.isEmpty()) {
+                        timerLock.wait();
+                        // nothing was due meanwhile, skip the idle ticks
+                        tick = (System.nanoTime() - start) / tickNanos;
+                        continue;
+                    }
+                    long sleep = start + (tick + 1) * tickNanos - System.nanoTime();
+                    if (sleep > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(timerLock, sleep);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // cancel what is left, nothing will run it
+        transferAdded();
+        for (List<Timeout> bucket : wheel) {
+            bucket.forEach(Timeout::cancel);
+            bucket.clear();
+        }
+        timers.set(0);
+    }
+
+    private void transferAdded() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK);
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled) {
+                timers.decrementAndGet();
+                continue;
+            }
+            // round up so tasks never run early, due ones go in the current bucket
+            long deadlineTick = Math.max(tick, (timeout.deadline - start + tickNanos - 1) / tickNanos);
+            timeout.rounds = (deadlineTick - tick) / WHEEL_SIZE;
+            wheel[(int) (deadlineTick & (WHEEL_SIZE - 1))].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        List<Timeout> due = new ArrayList<>();
+        bucket.removeIf(timeout -> {
+            if (timeout.cancelled) {
+                timers.decrementAndGet();
+                return true;
+            }
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                return false;
+            }
+            due.add(timeout);
+            return true;
+        });
+        for (Timeout timeout : due) {
+            timers.decrementAndGet();
+            execute(timeout.name, timeout::fire);
+        }
+    }
+
+    /**
+     * A task scheduled in the {@link PluginScheduler}.
+     */
+    public interface ScheduledTask {
+        /**
+         * Cancel the task. A run already started completes, no other run starts.
+         */
+        void cancel();
+
+        /**
+         * Check if the task will not run again, because it ran once or was cancelled.
+         *
+         * @return true if the task is done
+         */
+        boolean isDone();
+
+        /**
+         * Get the time left until the next run.
+         *
+         * @param unit the unit of the result
+         * @return the delay, negative if the run is due
+         */
+        long getDelay(TimeUnit unit);
+    }
+
+    private class Timeout implements ScheduledTask {
+        private final String name;
+        private final Runnable task;
+        // period of periodic tasks (in nanoseconds), negative for tasks run once
+        private final long period;
+        private volatile long deadline;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        // wheel revolutions left before the deadline, only used by the timer thread
+        private long rounds;
+
+        private Timeout(String name, Runnable task, long delay, long period) {
+            this.name = name;
+            this.task = task;
+            this.period = period;
+            this.deadline = System.nanoTime() + delay;
+        }
+
+        private void fire() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                if (period < 0) {
+                    done = true;
+                } else if (!cancelled) {
+                    deadline = System.nanoTime() + period;
+                    add(this);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            done = true;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private class Lane implements Executor {
+        private final String name;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Lane(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+            trySchedule();
+        }
+
+        private void trySchedule() {
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                dispatch(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Runnable task;
+                for (int i = 0; i < LANE_BATCH && (task = tasks.poll()) != null; i++) {
+                    run(name, task);
+                }
+            } finally {
+                scheduled.set(false);
+                trySchedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.utils;
+
+import com.codealike.client.core.internal.model.SessionSnapshot;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the snapshot of the last confirmed session in the codealike user folder.
+ * <p>
+ * The snapshot is signed with an HMAC keyed by the user credentials, so a
+ * snapshot edited by hand, written for other credentials or left by a previous
+ * user is ignored. Snapshots older than {@link #MAX_AGE} are ignored as well, so
+ * the server is asked again after a long time offline.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class SessionStore {
+    public static final long MAX_AGE = TimeUnit.DAYS.toMillis(30);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String PAYLOAD = "payload";
+    private static final String SIGNATURE = "signature";
+
+    private final File file;
+
+    public SessionStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Store a snapshot, replacing the previous one. The write is queued in the
+     * {@link LocalIOExecutor}.
+     *
+     * @param snapshot the session snapshot
+     * @param token    the user token, used to sign the snapshot
+     * @return a future completed once the snapshot is written
+     */
+    public CompletableFuture<File> save(SessionSnapshot snapshot, String token) {
+        try {
+            String payload = MapperHolder.MAPPER.writeValueAsString(snapshot);
+            ObjectNode signed = MapperHolder.MAPPER.createObjectNode()
+                    .put(PAYLOAD, payload)
+                    .put(SIGNATURE, sign(payload, snapshot.getIdentity(), token));
+
+            return LocalIOExecutor.getInstance().write(file, MapperHolder.MAPPER.writeValueAsBytes(signed));
+        } catch (IOException | GeneralSecurityException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not store session snapshot.");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Load the stored snapshot for the given credentials.
+     *
+     * @param identity the user identity
+     * @param token    the user token
+     * @return the snapshot, or null if there is none or it is invalid, expired or
+     * belongs to other credentials
+     */
+    public SessionSnapshot load(String identity, String token) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            JsonNode signed = MapperHolder.MAPPER.readTree(file);
+            String payload = signed.path(PAYLOAD).asText("");
+            byte[] signature = Base64.getDecoder().decode(signed.path(SIGNATURE).asText(""));
+            byte[] expected = Base64.getDecoder().decode(sign(payload, identity, token));
+            if (!MessageDigest.isEqual(signature, expected)) {
+                LogManager.INSTANCE.logInfo("Stored session snapshot does not match current credentials, ignored.");
+                return null;
+            }
+
+            SessionSnapshot snapshot = MapperHolder.MAPPER.readValue(payload, SessionSnapshot.class);
+            if (!identity.equals(snapshot.getIdentity())
+                    || System.currentTimeMillis() - snapshot.getConfirmedAt() > MAX_AGE) {
+                LogManager.INSTANCE.logInfo("Stored session snapshot expired, ignored.");
+                return null;
+            }
+            return snapshot;
+        } catch (IOException | IllegalArgumentException | GeneralSecurityException e) {
+            LogManager.INSTANCE.logWarn(e, "Could not read session snapshot.");
+            return null;
+        }
+    }
+
+    /**
+     * Remove the stored snapshot. Queued after pending writes.
+     *
+     * @return a future completed once the snapshot is removed
+     */
+    public CompletableFuture<Boolean> delete() {
+        return LocalIOExecutor.getInstance().submit(() -> Files.deleteIfExists(file.toPath()));
+    }
+
+    private static String sign(String payload, String identity, String token) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(new SecretKeySpec((identity + "/" + token).getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        return Base64.getEncoder().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static class MapperHolder {
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+    }
+}
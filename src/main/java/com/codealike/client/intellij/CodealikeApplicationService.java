@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2022-2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.intellij;
+
+import com.codealike.client.core.api.ApiClient;
+import com.codealike.client.core.api.ConnectivityMonitor;
+import com.codealike.client.core.api.HealthAggregator;
+import com.codealike.client.core.internal.dto.HealthInfo;
+import com.codealike.client.core.internal.model.TrackActivity;
+import com.codealike.client.core.internal.services.IdentityService;
+import com.codealike.client.core.internal.services.IdentityService.LoginResult;
+import com.codealike.client.core.internal.services.ServiceListener;
+import com.codealike.client.core.internal.services.TrackingService;
+import com.codealike.client.core.internal.startup.PluginContext;
+import com.codealike.client.core.internal.startup.StartupPipeline;
+import com.codealike.client.core.internal.utils.Diagnostics;
+import com.codealike.client.core.internal.utils.LogManager;
+import com.codealike.client.core.internal.utils.PluginScheduler;
+import com.codealike.client.intellij.ui.AuthenticationDialog;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.util.Disposer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plugin application service. Created on demand, the first time a project is
+ * opened or a Codealike action is used, and disposed with the application.
+ * <p>
+ * Listeners registered in plugin services are removed through child disposables,
+ * so they go away before the plugin context is shut down.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class CodealikeApplicationService implements Disposable {
+    private static final String CODEALIKE_PROPERTIES_FILE = "/codealike.properties";
+    ServiceListener loginObserver = () -> reattachOpenedProjects();
+    ServiceListener versionObserver = () -> checkVersionOnLogin();
+    ConnectivityMonitor.Listener connectivityObserver = this::onConnectivityChanged;
+    private volatile PluginContext pluginContext;
+    // stored credentials could not be checked, login is tried again once the server is back
+    private volatile boolean awaitingServer;
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+    private final AtomicBoolean versionChecked = new AtomicBoolean();
+
+    public CodealikeApplicationService() {
+    }
+
+    public static CodealikeApplicationService getInstance() {
+        return ApplicationManager.getApplication().getService(CodealikeApplicationService.class);
+    }
+
+    /**
+     * Get the plugin context, starting the plugin on first call. Projects start
+     * it from a background startup activity; actions may start it when used
+     * before any project was opened.
+     *
+     * @return the plugin context
+     */
+    public synchronized PluginContext getPluginContext() {
+        if (pluginContext == null) {
+            start();
+        }
+        return pluginContext;
+    }
+
+    /**
+     * Get the plugin context without starting the plugin, e.g. when a project
+     * is closed.
+     *
+     * @return the plugin context, or null if the plugin was not started
+     */
+    public static PluginContext getStartedPluginContext() {
+        CodealikeApplicationService service = ApplicationManager.getApplication()
+                .getServiceIfCreated(CodealikeApplicationService.class);
+        return service != null ? service.pluginContext : null;
+    }
+
+    @Override
+    public void dispose() {
+        // listeners were removed by child disposables, store activity in progress
+        // locally, it will be sent on next start
+        synchronized (this) {
+            if (pluginContext != null) {
+                pluginContext.shutdown();
+            }
+        }
+        HealthAggregator.getInstance().close();
+        ApiClient.getConnectivity().close();
+        ApiClient.closeTransport();
+        // last, local writes queued above still run
+        PluginScheduler.getInstance().shutdown();
+    }
+
+    /*
+     *  start:
+     *  Creates the plugin context and starts the startup pipeline. Called once,
+     *  with the service lock held.
+     */
+    private void start() {
+        // every phase is timed, logged as a structured line and kept for the diagnostics dump
+        StartupPipeline startup = new StartupPipeline();
+        Diagnostics.getInstance().register("Startup", startup::describe);
+
+        // load plugin properties
+        Properties properties = startup.measure("properties", () -> {
+            try {
+                return loadPluginProperties();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return new Properties();
+            }
+        });
+
+        // initialize plugin context with properties
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        long loadedClasses = classLoading.getTotalLoadedClassCount();
+        this.pluginContext = startup.measure("context", () -> PluginContext.getInstance(properties, startup));
+        HealthAggregator.getInstance().start(ApiClient::tryCreateNew);
+        LogManager.INSTANCE.logInfo(String.format("Plugin context initialized on %s, %d classes loaded.",
+                Thread.currentThread().getName(), classLoading.getTotalLoadedClassCount() - loadedClasses));
+
+        IdentityService identityService = pluginContext.getIdentityService();
+        identityService.addListener(loginObserver);
+        ApiClient.getConnectivity().addListener(connectivityObserver);
+        Disposer.register(this, () -> {
+            identityService.removeListener(loginObserver);
+            identityService.removeListener(versionObserver);
+        });
+        Disposer.register(this, () -> ApiClient.getConnectivity().removeListener(connectivityObserver));
+
+        // version check and login do not depend on each other so they run together,
+        // and tracking starts from the stored session before the server confirms it.
+        // Without stored credentials the server is not contacted until the user logs in
+        boolean storedCredentials = identityService.hasStoredCredentials();
+        versionChecked.set(storedCredentials);
+        identityService.addListener(versionObserver);
+        CompletableFuture<Boolean> version = startup.phase("version", () -> storedCredentials
+                ? pluginContext.checkVersionAsync() : CompletableFuture.completedFuture(true));
+        CompletableFuture<Boolean> provisional = startup.phase("provisional session",
+                () -> CompletableFuture.completedFuture(identityService.startProvisionalSession()));
+        CompletableFuture<LoginResult> login = startup.phase("login", identityService::tryLoginWithStoredCredentialsAsync, provisional);
+        startup.phase("confirm", () -> CompletableFuture.completedFuture(confirmStartup(version.join(), login.join())), version, login)
+                .exceptionally(t -> {
+                    Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                    Exception e = cause instanceof Exception ? (Exception) cause : new Exception(cause);
+                    // sent in the background, the plugin is not tracking so there is nothing to compete with
+                    HealthAggregator.getInstance().report(new HealthInfo(e, "Plugin could not start.", "intellij", HealthInfo.HealthInfoType.Error, identityService.getIdentity()));
+                    HealthAggregator.getInstance().flush();
+                    LogManager.INSTANCE.logError(e, "Couldn't start plugin.");
+                    return false;
+                });
+
+        startup.completion().thenRun(() -> LogManager.INSTANCE.logInfo(startup.toString()));
+    }
+
+    /*
+     *  confirmStartup:
+     *  Decides what to do once both version check and login completed.
+     */
+    private boolean confirmStartup(boolean supportedVersion, LoginResult login) {
+        if (!supportedVersion) {
+            pluginContext.getIdentityService().endSession();
+            throw new IllegalStateException("Plugin version is not supported by the server.");
+        }
+        return onLoginCompleted(login);
+    }
+
+    /*
+     *  onLoginCompleted:
+     *  Handles the outcome of a login with stored credentials. While the server can not
+     *  be reached the provisional session is kept and login is tried again once it is
+     *  back, otherwise the session is ended and the user asked for credentials.
+     */
+    private boolean onLoginCompleted(LoginResult login) {
+        IdentityService identityService = pluginContext.getIdentityService();
+        awaitingServer = false;
+        switch (login) {
+            case Authenticated:
+                return true;
+            case Unreachable:
+                awaitingServer = true;
+                if (identityService.isProvisional()) {
+                    LogManager.INSTANCE.logInfo("Codealike server could not be reached, tracking with the stored session.");
+                } else {
+                    LogManager.INSTANCE.logInfo("Codealike server could not be reached, login will be tried again once it is back.");
+                }
+                return false;
+            case Rejected:
+                identityService.rejectSession();
+                break;
+            default:
+                break;
+        }
+        authenticate();
+        return false;
+    }
+
+    /*
+     *  checkVersionOnLogin:
+     *  Checks the plugin version on the first login when it was not
+     *  checked on startup, ending the session if it is not supported
+     */
+    private void checkVersionOnLogin() {
+        IdentityService identityService = pluginContext.getIdentityService();
+        if (!identityService.isAuthenticated() || !versionChecked.compareAndSet(false, true)) {
+            return;
+        }
+        pluginContext.getStartup().phase("version on login", pluginContext::checkVersionAsync).thenAccept(supported -> {
+            if (!supported) {
+                LogManager.INSTANCE.logError("Plugin version is not supported by the server.");
+                identityService.endSession();
+            }
+        });
+    }
+
+    /*
+     *  onConnectivityChanged:
+     *  Revalidates the stored session in the background once the server
+     *  can be reached again.
+     */
+    private void onConnectivityChanged(ConnectivityMonitor.State from, ConnectivityMonitor.State to) {
+        if (to != ConnectivityMonitor.State.Online || !awaitingServer || !revalidating.compareAndSet(false, true)) {
+            return;
+        }
+        pluginContext.getIdentityService().tryLoginWithStoredCredentialsAsync().whenComplete((login, e) -> {
+            revalidating.set(false);
+            if (e != null) {
+                LogManager.INSTANCE.logWarn(e, "Could not revalidate stored session.");
+            } else {
+                onLoginCompleted(login);
+            }
+        });
+    }
+
+    protected Properties loadPluginProperties() throws IOException {
+        Properties properties = new Properties();
+        InputStream in = CodealikeApplicationService.class.getResourceAsStream(CODEALIKE_PROPERTIES_FILE);
+        properties.load(in);
+        in.close();
+
+        return properties;
+    }
+
+    protected void authenticate() {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            // prompt for apiKey if it does not already exist
+            Project project = null;
+            try {
+                project = ProjectManager.getInstance().getDefaultProject();
+            } catch (NullPointerException e) {
+            }
+
+            // lets ask for a api key
+            AuthenticationDialog dialog = new AuthenticationDialog(project);
+            dialog.show();
+        });
+    }
+
+    /*
+     *  reattachOpenedProjects:
+     *  Applies the current session to the projects already open, starting
+     *  or stopping tracking without reloading them
+     */
+    private void reattachOpenedProjects() {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            IdentityService identityService = pluginContext.getIdentityService();
+            TrackingService trackingService = pluginContext.getTrackingService();
+            if (trackingService == null) {
+                return;
+            }
+
+            boolean track = identityService.isAuthenticated() && identityService.getTrackActivity() == TrackActivity.Always;
+            if (!track && trackingService.isTracking()) {
+                if (identityService.isAuthenticated()) {
+                    trackingService.disableTracking();
+                } else {
+                    // activity was already flushed when the session ended
+                    trackingService.stopTracking(false);
+                }
+            }
+
+            for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+                if (!project.isDisposed()) {
+                    CodealikeProjectService.getInstance(project).onProjectOpened();
+                }
+            }
+        });
+    }
+}
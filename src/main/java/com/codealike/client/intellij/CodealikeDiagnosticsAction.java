@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.intellij;
+
+import com.codealike.client.intellij.ui.DiagnosticsDialog;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.PlatformDataKeys;
+import com.intellij.openapi.project.Project;
+
+/**
+ * Plugin diagnostics action. Shows connectivity, transport and cache state.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class CodealikeDiagnosticsAction extends AnAction {
+
+    public CodealikeDiagnosticsAction() {
+        super("Diagnostics");
+    }
+
+    @Override
+    public void actionPerformed(AnActionEvent e) {
+        Project project = e.getData(PlatformDataKeys.PROJECT);
+        // no project may have started the plugin yet
+        CodealikeApplicationService.getInstance().getPluginContext();
+        DiagnosticsDialog diagnosticsDialog = new DiagnosticsDialog(project);
+        diagnosticsDialog.show();
+    }
+}
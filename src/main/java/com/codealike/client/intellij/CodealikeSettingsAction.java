@@ -25,6 +25,8 @@ public class CodealikeSettingsAction extends AnAction {
     public void actionPerformed(AnActionEvent e) {
         // TODO: insert action logic here
         Project project = e.getData(PlatformDataKeys.PROJECT);
+        // no project may have started the plugin yet
+        CodealikeApplicationService.getInstance().getPluginContext();
         CodealikeSettingsDialog settingsDialog = new CodealikeSettingsDialog(project);
         settingsDialog.show();
     }
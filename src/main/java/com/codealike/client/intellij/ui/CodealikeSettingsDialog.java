@@ -63,7 +63,7 @@ public class CodealikeSettingsDialog extends DialogWrapper {
         tokenLabel.setText("Codealike Token:");
 
         labelWarning = new JLabel();
-        labelWarning.setText("Projects will be reloaded if TOKEN is added, changed or removed.");
+        labelWarning.setText("Open projects start or stop tracking when TOKEN is added, changed or removed.");
         labelWarning.setHorizontalAlignment(SwingConstants.CENTER);
 
         labelError = new JLabel();
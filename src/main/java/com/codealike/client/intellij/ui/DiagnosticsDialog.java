@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.intellij.ui;
+
+import com.codealike.client.core.internal.utils.Diagnostics;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Diagnostics dialog. Shows the sections registered in {@link Diagnostics}.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class DiagnosticsDialog extends DialogWrapper {
+    private JTextArea diagnosticsText;
+
+    /**
+     * Constructor. Creates the Codealike diagnostics dialog from the menu.
+     *
+     * @param project the current open {@link Project}
+     */
+    public DiagnosticsDialog(@Nullable Project project) {
+        super(project, true);
+
+        setTitle("Codealike Diagnostics");
+
+        init();
+
+        refresh();
+    }
+
+    @NotNull
+    @Override
+    protected Action[] createActions() {
+        return new Action[]{
+                myOKAction
+        };
+    }
+
+    @Nullable
+    @Override
+    protected JComponent createCenterPanel() {
+        diagnosticsText = new JTextArea(25, 100);
+        diagnosticsText.setEditable(false);
+        diagnosticsText.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JButton refreshButton = new JButton();
+        refreshButton.setText("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.add(new JScrollPane(diagnosticsText), BorderLayout.CENTER);
+        mainPanel.add(refreshButton, BorderLayout.SOUTH);
+
+        return mainPanel;
+    }
+
+    private void refresh() {
+        diagnosticsText.setText(Diagnostics.getInstance().dump());
+        diagnosticsText.setCaretPosition(0);
+    }
+}
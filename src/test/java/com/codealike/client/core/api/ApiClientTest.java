@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import com.codealike.client.core.internal.dto.ActivityInfo;
+import com.codealike.client.tools.StandInApiServer;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the {@link ApiClient} against the {@link StandInApiServer}: coalescing of
+ * identical calls, retries, the circuit breaker and connectivity, on the HTTP/2 transport.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ApiClientTest {
+    private static final String IDENTITY = "test";
+    private static final String TOKEN = "test-token";
+    private static final RetryPolicy FAST_RETRIES = new RetryPolicy(3, 10, 20);
+
+    private static StandInApiServer server;
+    private ApiClient client;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new StandInApiServer(0);
+        server.addAccount(IDENTITY, TOKEN);
+        server.start();
+        ApiClient.closeTransport();
+        ApiClient.selectTransport(ApiClient.HTTP2_TRANSPORT);
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        ApiClient.closeTransport();
+        server.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        client = ApiClient.tryCreateNew(server.getApiUrl(), IDENTITY, TOKEN).withRetryPolicy(FAST_RETRIES);
+        server.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        // the breaker, cache and connectivity are shared by every client
+        server.setRefuseConnections(false);
+        server.setLatency(0, 0);
+        server.setErrorRate(0);
+        server.setUnavailableRate(0);
+        ApiClient.getCircuitBreaker().record(ApiResponse.Status.Ok);
+        ApiClient.getResponseCache().clear();
+        ApiClient.getConnectivity().record(ApiResponse.Status.Ok, 0);
+    }
+
+    @Test(timeout = 10000)
+    public void identicalCallsInFlightAreCoalesced() throws Exception {
+        server.setLatency(300, 0);
+
+        CompletableFuture<ApiResponse<Void>> first = CompletableFuture.supplyAsync(client::tokenAuthenticate);
+        awaitRequests(StandInApiServer.ACCOUNT, 1);
+        ApiResponse<Void> second = client.tokenAuthenticate();
+
+        assertEquals(ApiResponse.Status.Ok, first.get().getStatus());
+        assertEquals(ApiResponse.Status.Ok, second.getStatus());
+        assertEquals(1, server.getRequestCount(StandInApiServer.ACCOUNT));
+    }
+
+    @Test(timeout = 10000)
+    public void callsWithDifferentTokensAreNotCoalesced() throws Exception {
+        server.setLatency(300, 0);
+        ApiClient other = ApiClient.tryCreateNew(server.getApiUrl(), IDENTITY, "other-token").withRetryPolicy(FAST_RETRIES);
+
+        CompletableFuture<ApiResponse<Void>> first = CompletableFuture.supplyAsync(client::tokenAuthenticate);
+        awaitRequests(StandInApiServer.ACCOUNT, 1);
+        ApiResponse<Void> second = other.tokenAuthenticate();
+
+        assertEquals(ApiResponse.Status.Ok, first.get().getStatus());
+        assertEquals(ApiResponse.Status.Unauthorized, second.getStatus());
+        assertEquals(2, server.getRequestCount(StandInApiServer.ACCOUNT));
+    }
+
+    @Test(timeout = 10000)
+    public void cancellingOneCoalescedCallKeepsTheRequest() {
+        server.setLatency(300, 0);
+
+        CompletableFuture<ApiResponse<Void>> first = client.tokenAuthenticateAsync();
+        CompletableFuture<ApiResponse<Void>> second = client.tokenAuthenticateAsync();
+        first.cancel(true);
+
+        assertEquals(ApiResponse.Status.Ok, second.join().getStatus());
+        assertTrue(first.isCancelled());
+        assertEquals(1, server.getRequestCount(StandInApiServer.ACCOUNT));
+    }
+
+    @Test(timeout = 10000)
+    public void failedGetIsRetried() {
+        server.setErrorRate(1);
+
+        ApiResponse<Void> response = client.tokenAuthenticate();
+
+        assertEquals(ApiResponse.Status.InternalServerError, response.getStatus());
+        assertEquals(FAST_RETRIES.getMaxAttempts(), server.getRequestCount(StandInApiServer.ACCOUNT));
+    }
+
+    @Test(timeout = 10000)
+    public void failedPostIsNotRetried() {
+        server.setErrorRate(1);
+
+        ApiResponse<Void> response = client.postActivityInfo(createBatch());
+
+        assertEquals(ApiResponse.Status.InternalServerError, response.getStatus());
+        assertEquals(1, server.getRequestCount(StandInApiServer.ACTIVITY));
+    }
+
+    @Test(timeout = 10000)
+    public void unavailablePostIsRetried() {
+        server.setUnavailableRate(1);
+
+        ApiResponse<Void> response = client.postActivityInfo(createBatch());
+
+        assertEquals(ApiResponse.Status.ServiceUnavailable, response.getStatus());
+        assertEquals(FAST_RETRIES.getMaxAttempts(), server.getRequestCount(StandInApiServer.ACTIVITY));
+    }
+
+    @Test(timeout = 10000)
+    public void openCircuitFailsCallsWithoutRequests() {
+        server.setErrorRate(1);
+        ApiClient once = client.withRetryPolicy(RetryPolicy.NONE);
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            once.tokenAuthenticate();
+        }
+        assertEquals(CircuitBreaker.State.Open, ApiClient.getCircuitBreaker().getState());
+        server.reset();
+
+        ApiResponse<Void> response = client.tokenAuthenticate();
+
+        assertEquals(ApiResponse.Status.ConnectionProblems, response.getStatus());
+        assertFalse(response.isRequestSent());
+        assertEquals(0, server.getRequestCount(StandInApiServer.ACCOUNT));
+    }
+
+    @Test(timeout = 10000)
+    public void retriesStopOnceTheCircuitOpens() {
+        server.setErrorRate(1);
+        ApiClient once = client.withRetryPolicy(RetryPolicy.NONE);
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD - 1; i++) {
+            once.tokenAuthenticate();
+        }
+        server.reset();
+
+        client.tokenAuthenticate();
+
+        assertEquals(CircuitBreaker.State.Open, ApiClient.getCircuitBreaker().getState());
+        assertEquals(1, server.getRequestCount(StandInApiServer.ACCOUNT));
+    }
+
+    @Test(timeout = 10000)
+    public void refusedConnectionsGoOfflineUntilAProbeSucceeds() throws Exception {
+        server.setRefuseConnections(true);
+
+        assertEquals(ApiResponse.Status.ConnectionProblems, client.tokenAuthenticate().getStatus());
+        assertTrue(ApiClient.getConnectivity().isOffline());
+
+        server.setRefuseConnections(false);
+        server.reset();
+        // offline calls fail right away, without reaching the server
+        assertEquals(ApiResponse.Status.ConnectionProblems, client.tokenAuthenticate().getStatus());
+        assertEquals(0, server.getRequestCount(StandInApiServer.ACCOUNT));
+
+        assertEquals(ConnectivityMonitor.State.Online, ApiClient.getConnectivity().probe().get());
+        assertEquals(ApiResponse.Status.Ok, client.tokenAuthenticate().getStatus());
+    }
+
+    private static void awaitRequests(String endpoint, int count) throws InterruptedException {
+        while (server.getRequestCount(endpoint) < count) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static ActivityInfo createBatch() {
+        DateTime end = DateTime.now();
+        ActivityInfo batch = new ActivityInfo(IDENTITY, UUID.randomUUID(), UUID.randomUUID(), end.minusMinutes(5), end);
+        batch.setProjects(new ArrayList<>());
+        batch.setStates(new ArrayList<>());
+        batch.setEvents(new ArrayList<>());
+        return batch;
+    }
+}
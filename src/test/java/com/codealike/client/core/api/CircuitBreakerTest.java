@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the {@link CircuitBreaker} transitions: closed, open after consecutive
+ * retryable failures, half open with a single trial call once the open period ends.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class CircuitBreakerTest {
+    private static final long OPEN_PERIOD = 50;
+
+    private final CircuitBreaker breaker = new CircuitBreaker(3, OPEN_PERIOD);
+
+    @Test
+    public void opensAfterConsecutiveRetryableFailures() {
+        breaker.record(ApiResponse.Status.ConnectionProblems);
+        breaker.record(ApiResponse.Status.InternalServerError);
+        assertEquals(CircuitBreaker.State.Closed, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.record(ApiResponse.Status.ServiceUnavailable);
+
+        assertEquals(CircuitBreaker.State.Open, breaker.getState());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getRejectedCalls());
+    }
+
+    @Test
+    public void permanentFailuresCloseTheCircuit() {
+        breaker.record(ApiResponse.Status.ConnectionProblems);
+        breaker.record(ApiResponse.Status.ConnectionProblems);
+
+        // the server answered, so it can be reached
+        breaker.record(ApiResponse.Status.NotFound);
+        breaker.record(ApiResponse.Status.ConnectionProblems);
+
+        assertEquals(CircuitBreaker.State.Closed, breaker.getState());
+        assertEquals(1, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void halfOpenCircuitAllowsASingleTrial() throws Exception {
+        open();
+        Thread.sleep(OPEN_PERIOD + 10);
+        assertFalse(breaker.isOpen());
+
+        assertTrue(breaker.allowRequest());
+
+        assertEquals(CircuitBreaker.State.HalfOpen, breaker.getState());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successfulTrialClosesTheCircuit() throws Exception {
+        open();
+        Thread.sleep(OPEN_PERIOD + 10);
+        assertTrue(breaker.allowRequest());
+
+        breaker.record(ApiResponse.Status.Ok);
+
+        assertEquals(CircuitBreaker.State.Closed, breaker.getState());
+        assertEquals(0, breaker.getConsecutiveFailures());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialOpensTheCircuitAgain() throws Exception {
+        open();
+        Thread.sleep(OPEN_PERIOD + 10);
+        assertTrue(breaker.allowRequest());
+
+        breaker.record(ApiResponse.Status.ConnectionProblems);
+
+        assertEquals(CircuitBreaker.State.Open, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void checkingTheCircuitDoesNotTakeTheTrial() throws Exception {
+        open();
+        Thread.sleep(OPEN_PERIOD + 10);
+
+        assertFalse(breaker.isOpen());
+        assertFalse(breaker.isOpen());
+
+        assertEquals(CircuitBreaker.State.Open, breaker.getState());
+        assertEquals(0, breaker.getRejectedCalls());
+        assertTrue(breaker.allowRequest());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.record(ApiResponse.Status.ConnectionProblems);
+        }
+        assertEquals(CircuitBreaker.State.Open, breaker.getState());
+    }
+}
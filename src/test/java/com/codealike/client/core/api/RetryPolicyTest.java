@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the {@link RetryPolicy}: which failures are retried, for which requests,
+ * how many times and how long to wait in between.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class RetryPolicyTest {
+    private final RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+
+    @Test
+    public void onlyTransientFailuresAreRetryable() {
+        assertTrue(RetryPolicy.isRetryable(ApiResponse.Status.ConnectionProblems));
+        assertTrue(RetryPolicy.isRetryable(ApiResponse.Status.ServiceUnavailable));
+        assertTrue(RetryPolicy.isRetryable(ApiResponse.Status.InternalServerError));
+
+        assertFalse(RetryPolicy.isRetryable(ApiResponse.Status.Ok));
+        assertFalse(RetryPolicy.isRetryable(ApiResponse.Status.BadRequest));
+        assertFalse(RetryPolicy.isRetryable(ApiResponse.Status.Unauthorized));
+        assertFalse(RetryPolicy.isRetryable(ApiResponse.Status.NotFound));
+        assertFalse(RetryPolicy.isRetryable(ApiResponse.Status.Conflict));
+    }
+
+    @Test
+    public void idempotentRequestsAreRetriedOnAnyTransientFailure() {
+        assertTrue(policy.shouldRetry(1, response(ApiResponse.Status.InternalServerError, true), true));
+        assertTrue(policy.shouldRetry(1, response(ApiResponse.Status.ConnectionProblems, true), true));
+        assertFalse(policy.shouldRetry(1, response(ApiResponse.Status.Unauthorized, true), true));
+    }
+
+    @Test
+    public void sentRequestsThatAreNotIdempotentAreOnlyRetriedWhenUnavailable() {
+        assertFalse(policy.shouldRetry(1, response(ApiResponse.Status.InternalServerError, true), false));
+        assertFalse(policy.shouldRetry(1, response(ApiResponse.Status.ConnectionProblems, true), false));
+        assertTrue(policy.shouldRetry(1, response(ApiResponse.Status.ServiceUnavailable, true), false));
+    }
+
+    @Test
+    public void requestsThatWereNotSentAreRetried() {
+        assertTrue(policy.shouldRetry(1, response(ApiResponse.Status.ConnectionProblems, false), false));
+    }
+
+    @Test
+    public void retriesStopAtMaxAttempts() {
+        ApiResponse<Void> failure = response(ApiResponse.Status.ServiceUnavailable, true);
+
+        assertTrue(policy.shouldRetry(2, failure, true));
+        assertFalse(policy.shouldRetry(3, failure, true));
+        assertFalse(RetryPolicy.NONE.shouldRetry(1, failure, true));
+    }
+
+    @Test
+    public void delayGrowsWithinItsBounds() {
+        for (int i = 0; i < 100; i++) {
+            assertBetween(50, 100, policy.getDelay(1));
+            assertBetween(100, 200, policy.getDelay(2));
+            assertBetween(200, 400, policy.getDelay(3));
+            assertBetween(500, 1000, policy.getDelay(10));
+        }
+        assertEquals(0, RetryPolicy.NONE.getDelay(1));
+    }
+
+    private static ApiResponse<Void> response(ApiResponse.Status status, boolean requestSent) {
+        return new ApiResponse<>(status, status.toString(), requestSent);
+    }
+
+    private static void assertBetween(long min, long max, long value) {
+        assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+    }
+}
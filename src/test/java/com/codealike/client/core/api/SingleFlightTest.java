@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.api;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the {@link SingleFlight}: identical calls in flight share one execution,
+ * joiners give up at their own deadline and cancelling a view only cancels the
+ * shared call once every caller cancelled.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class SingleFlightTest {
+    private final SingleFlight flight = new SingleFlight();
+
+    @Test(timeout = 5000)
+    public void identicalCallsInFlightShareOneExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute("key", 0, () -> {
+            executions.incrementAndGet();
+            await(release);
+            return "result";
+        }));
+        waitUntilInFlight(1);
+        CompletableFuture<String> joiner = CompletableFuture.supplyAsync(() -> flight.execute("key", 0, () -> {
+            executions.incrementAndGet();
+            return "own";
+        }));
+        while (flight.getCoalesced() == 0) {
+            Thread.sleep(5);
+        }
+
+        release.countDown();
+
+        assertEquals("result", leader.get());
+        assertEquals("result", joiner.get());
+        assertEquals(1, executions.get());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test
+    public void callsWithDifferentKeysAreNotShared() {
+        assertEquals("a", flight.execute("a", 0, () -> "a"));
+        assertEquals("b", flight.execute("b", 0, () -> "b"));
+        assertEquals(2, flight.getExecuted());
+        assertEquals(0, flight.getCoalesced());
+    }
+
+    @Test
+    public void completedCallIsNotReused() {
+        flight.execute("key", 0, () -> "first");
+
+        assertEquals("second", flight.execute("key", 0, () -> "second"));
+        assertEquals(2, flight.getExecuted());
+    }
+
+    @Test(timeout = 5000)
+    public void joinerGivesUpAtItsDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute("key", 0, () -> {
+            await(release);
+            return "late";
+        }));
+        waitUntilInFlight(1);
+
+        long start = System.nanoTime();
+        try {
+            flight.execute("key", 100, () -> "own");
+            fail("joiner should give up");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+
+        release.countDown();
+        assertEquals("late", leader.get());
+    }
+
+    @Test(timeout = 5000)
+    public void leaderFailureIsSharedWithJoiners() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute("key", 0, () -> {
+            await(release);
+            throw new IllegalStateException("failed");
+        }));
+        waitUntilInFlight(1);
+        CompletableFuture<String> joiner = CompletableFuture.supplyAsync(() -> flight.execute("key", 0, () -> "own"));
+        while (flight.getCoalesced() == 0) {
+            Thread.sleep(5);
+        }
+
+        release.countDown();
+
+        assertTrue(leader.handle((result, t) -> t).get() instanceof CompletionException);
+        Throwable shared = joiner.handle((result, t) -> t).get();
+        while (shared instanceof CompletionException && shared.getCause() != null) {
+            shared = shared.getCause();
+        }
+        assertTrue(shared instanceof IllegalStateException);
+    }
+
+    @Test
+    public void asynchronousCallsInFlightShareOneExecution() throws Exception {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        CompletableFuture<String> first = flight.executeAsync("key", () -> {
+            executions.incrementAndGet();
+            return source;
+        });
+        CompletableFuture<String> second = flight.executeAsync("key", () -> {
+            executions.incrementAndGet();
+            return CompletableFuture.completedFuture("own");
+        });
+        source.complete("result");
+
+        assertEquals("result", first.get());
+        assertEquals("result", second.get());
+        assertEquals(1, executions.get());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test
+    public void cancellingOneViewKeepsTheCallForOthers() throws Exception {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = flight.executeAsync("key", () -> source);
+        CompletableFuture<String> second = flight.executeAsync("key", () -> CompletableFuture.completedFuture("own"));
+
+        first.cancel(true);
+
+        assertFalse(source.isCancelled());
+        source.complete("result");
+        assertEquals("result", second.get());
+        try {
+            first.join();
+            fail("cancelled view should not complete");
+        } catch (CancellationException expected) {
+            // cancelled by its caller
+        }
+    }
+
+    @Test
+    public void cancellingEveryViewCancelsTheCall() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = flight.executeAsync("key", () -> source);
+        CompletableFuture<String> second = flight.executeAsync("key", () -> CompletableFuture.completedFuture("own"));
+
+        first.cancel(true);
+        second.cancel(true);
+
+        assertTrue(source.isCancelled());
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test(timeout = 5000)
+    public void cancellingEveryViewKeepsTheCallForSynchronousJoiners() throws Exception {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> view = flight.executeAsync("key", () -> source);
+        CompletableFuture<String> joiner = CompletableFuture.supplyAsync(() -> flight.execute("key", 5000, () -> "own"));
+        while (flight.getCoalesced() == 0) {
+            Thread.sleep(5);
+        }
+
+        view.cancel(true);
+
+        assertFalse(source.isCancelled());
+        source.complete("result");
+        assertEquals("result", joiner.get());
+    }
+
+    @Test(timeout = 5000)
+    public void lastSynchronousJoinerLeavingCancelsTheCall() throws Exception {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> view = flight.executeAsync("key", () -> source);
+        CompletableFuture<Throwable> joiner = CompletableFuture.supplyAsync(() -> flight.execute("key", 200, () -> "own"))
+                .handle((result, t) -> t);
+        while (flight.getCoalesced() == 0) {
+            Thread.sleep(5);
+        }
+
+        view.cancel(true);
+
+        assertTrue(joiner.get().getCause() instanceof TimeoutException);
+        assertTrue(source.isCancelled());
+    }
+
+    private void waitUntilInFlight(int calls) throws InterruptedException {
+        while (flight.getInFlight() < calls) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.processing;
+
+import com.codealike.client.core.internal.dto.ActivityEntryInfo;
+import com.codealike.client.core.internal.dto.ActivityInfo;
+import com.codealike.client.core.internal.dto.ActivityType;
+import com.codealike.client.core.internal.dto.CodeContextInfo;
+import com.codealike.client.core.internal.dto.ProjectContextInfo;
+import com.codealike.client.core.internal.serialization.CodealikeJson;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the {@link ActivityInfoSplitter}: chunks fit the budget, cover the batch
+ * window without gaps, clip entries running across cuts and get stable ids.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ActivityInfoSplitterTest {
+    private static final int BUDGET = 16 * 1024;
+    private static final DateTime BATCH_START = new DateTime(2023, 3, 1, 10, 0, DateTimeZone.UTC);
+    private static final DateTime BATCH_END = BATCH_START.plusHours(1);
+
+    private final ActivityInfoSplitter splitter = new ActivityInfoSplitter(BUDGET);
+
+    @Test
+    public void batchWithinBudgetIsNotSplit() throws Exception {
+        ActivityInfo batch = createBatch(5);
+
+        List<ActivityInfo> chunks = splitter.split(batch);
+
+        assertEquals(1, chunks.size());
+        assertSame(batch, chunks.get(0));
+        assertNull(batch.getParentBatchId());
+    }
+
+    @Test
+    public void chunksFitTheBudget() throws Exception {
+        List<ActivityInfo> chunks = splitter.split(createBatch(600));
+
+        assertTrue(chunks.size() > 1);
+        for (ActivityInfo chunk : chunks) {
+            assertTrue(CodealikeJson.getWriter().writeValueAsBytes(chunk).length <= BUDGET);
+        }
+    }
+
+    @Test
+    public void chunksCoverTheBatchWindow() throws Exception {
+        List<ActivityInfo> chunks = splitter.split(createBatch(600));
+
+        assertEquals(BATCH_START, chunks.get(0).getBatchStart());
+        assertEquals(BATCH_END, chunks.get(chunks.size() - 1).getBatchEnd());
+        for (int i = 1; i < chunks.size(); i++) {
+            assertEquals(chunks.get(i - 1).getBatchEnd(), chunks.get(i).getBatchStart());
+        }
+        int events = 0;
+        for (ActivityInfo chunk : chunks) {
+            events += chunk.getEvents().size();
+        }
+        assertEquals(600, events);
+    }
+
+    @Test
+    public void entriesRunningAcrossCutsAreClipped() throws Exception {
+        List<ActivityInfo> chunks = splitter.split(createBatch(600));
+
+        long stateMillis = 0;
+        for (ActivityInfo chunk : chunks) {
+            // the state running for the whole batch is split between every chunk
+            assertEquals(1, chunk.getStates().size());
+            for (ActivityEntryInfo entry : chunk.getStates()) {
+                assertFalse(entry.getStart().isBefore(chunk.getBatchStart()));
+                assertFalse(entry.getEnd().isAfter(chunk.getBatchEnd()));
+                assertEquals(new Period(entry.getStart(), entry.getEnd()), entry.getDuration());
+                stateMillis += entry.getEnd().getMillis() - entry.getStart().getMillis();
+            }
+        }
+        assertEquals(BATCH_END.getMillis() - BATCH_START.getMillis(), stateMillis);
+    }
+
+    @Test
+    public void chunkIdsAreDerivedFromTheBatch() throws Exception {
+        ActivityInfo batch = createBatch(600);
+
+        List<ActivityInfo> chunks = splitter.split(batch);
+        List<ActivityInfo> again = splitter.split(batch);
+
+        assertEquals(chunks.size(), again.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            ActivityInfo chunk = chunks.get(i);
+            assertEquals(batch.getBatchId(), chunk.getParentBatchId());
+            assertEquals(Integer.valueOf(i), chunk.getChunkIndex());
+            assertEquals(Integer.valueOf(chunks.size()), chunk.getChunkCount());
+            assertEquals(ActivityInfoSplitter.chunkBatchId(batch.getBatchId(), i, chunks.size()), chunk.getBatchId());
+            assertEquals(chunk.getBatchId(), again.get(i).getBatchId());
+        }
+    }
+
+    /*
+     *  createBatch:
+     *  One state running for the whole hour and the given number of
+     *  one second edit events spread over it.
+     */
+    private static ActivityInfo createBatch(int events) {
+        UUID projectId = UUID.randomUUID();
+        ActivityInfo batch = new ActivityInfo("test", projectId, UUID.randomUUID(), BATCH_START, BATCH_END);
+        batch.setProjects(Collections.singletonList(new ProjectContextInfo(projectId, "test")));
+
+        List<ActivityEntryInfo> states = new ArrayList<>();
+        states.add(createEntry(projectId, ActivityType.Coding, BATCH_START, BATCH_END));
+        batch.setStates(states);
+
+        List<ActivityEntryInfo> edits = new ArrayList<>();
+        long step = (BATCH_END.getMillis() - BATCH_START.getMillis()) / events;
+        for (int i = 0; i < events; i++) {
+            DateTime start = BATCH_START.plus(i * step);
+            edits.add(createEntry(projectId, ActivityType.DocumentEdit, start, start.plusSeconds(1)));
+        }
+        batch.setEvents(edits);
+        return batch;
+    }
+
+    private static ActivityEntryInfo createEntry(UUID projectId, ActivityType type, DateTime start, DateTime end) {
+        CodeContextInfo context = new CodeContextInfo(projectId);
+        context.setFile("src/main/java/com/example/Example.java");
+        context.setClass("Example");
+        context.setMember("run");
+
+        ActivityEntryInfo entry = new ActivityEntryInfo(UUID.randomUUID());
+        entry.setType(type);
+        entry.setContext(context);
+        entry.setStart(start);
+        entry.setEnd(end);
+        entry.setDuration(new Period(start, end));
+        return entry;
+    }
+}
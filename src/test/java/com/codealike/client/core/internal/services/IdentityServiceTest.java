@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.services;
+
+import com.codealike.client.core.internal.model.SessionSnapshot;
+import com.codealike.client.core.internal.model.TrackActivity;
+import com.codealike.client.core.internal.utils.SessionStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of the {@link IdentityService} session handling.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class IdentityServiceTest {
+    private static final String IDENTITY = "test";
+    private static final String TOKEN = "test-token";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 5000)
+    public void rejectedSessionClearsTheSnapshot() {
+        File file = new File(folder.getRoot(), "session.json");
+        SessionStore sessionStore = new SessionStore(file);
+        sessionStore.save(new SessionSnapshot(IDENTITY, null, TrackActivity.Always, null), TOKEN).join();
+        assertNotNull(sessionStore.load(IDENTITY, TOKEN));
+
+        new IdentityService().rejectSession(sessionStore).join();
+
+        assertFalse(file.exists());
+        assertNull(sessionStore.load(IDENTITY, TOKEN));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.core.internal.tracking;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the {@link ReplayLedger}: acknowledged batches are found again, once,
+ * across reopening, growth and generations.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class ReplayLedgerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File ledgerFile;
+    private ReplayLedger ledger;
+
+    @Before
+    public void setUp() {
+        ledgerFile = new File(folder.getRoot(), "replay.ledger");
+        ledger = new ReplayLedger(ledgerFile);
+    }
+
+    @After
+    public void tearDown() {
+        ledger.close();
+    }
+
+    @Test
+    public void recordedBatchIsFound() {
+        UUID batchId = UUID.randomUUID();
+        assertFalse(ledger.contains(batchId));
+
+        ledger.record(batchId);
+
+        assertTrue(ledger.contains(batchId));
+        assertFalse(ledger.contains(UUID.randomUUID()));
+    }
+
+    @Test
+    public void recordingABatchTwiceStoresItOnce() {
+        UUID batchId = UUID.randomUUID();
+        ledger.record(batchId);
+        long length = ledgerFile.length();
+        byte[] content = read(ledgerFile);
+
+        ledger.record(batchId);
+
+        assertEquals(length, ledgerFile.length());
+        assertArrayEquals(content, read(ledgerFile));
+        assertTrue(ledger.contains(batchId));
+    }
+
+    @Test
+    public void batchesAreFoundAfterReopening() {
+        UUID batchId = UUID.randomUUID();
+        ledger.record(batchId);
+        ledger.close();
+
+        ReplayLedger reopened = new ReplayLedger(ledgerFile);
+        try {
+            assertTrue(reopened.contains(batchId));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void batchesAreFoundAfterTheTableGrows() {
+        List<UUID> batchIds = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            UUID batchId = UUID.randomUUID();
+            batchIds.add(batchId);
+            ledger.record(batchId);
+        }
+        ledger.close();
+
+        ReplayLedger reopened = new ReplayLedger(ledgerFile);
+        try {
+            for (UUID batchId : batchIds) {
+                assertTrue(reopened.contains(batchId));
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void batchRecordedByAnotherProcessIsFoundAfterRefresh() {
+        assertFalse(ledger.contains(UUID.randomUUID()));
+        long length = ledgerFile.length();
+        long modified = ledgerFile.lastModified();
+
+        UUID batchId = UUID.randomUUID();
+        ReplayLedger other = new ReplayLedger(ledgerFile);
+        try {
+            other.record(batchId);
+        } finally {
+            other.close();
+        }
+        // same size and, on coarse file systems, same modification time
+        assertEquals(length, ledgerFile.length());
+        assertTrue(ledgerFile.setLastModified(modified));
+
+        ledger.refresh();
+
+        assertTrue(ledger.contains(batchId));
+    }
+
+    @Test
+    public void newGenerationStartsOnceFull() {
+        ledger.close();
+        ledger = new ReplayLedger(ledgerFile, 4);
+        List<UUID> oldGeneration = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            UUID batchId = UUID.randomUUID();
+            oldGeneration.add(batchId);
+            ledger.record(batchId);
+        }
+
+        UUID batchId = UUID.randomUUID();
+        ledger.record(batchId);
+
+        assertTrue(ledger.contains(batchId));
+        for (UUID forgotten : oldGeneration) {
+            assertFalse(ledger.contains(forgotten));
+        }
+    }
+
+    @Test
+    public void unknownContentIsReplaced() throws Exception {
+        Files.write(ledgerFile.toPath(), "not a ledger, not a ledger".getBytes(StandardCharsets.UTF_8));
+
+        UUID batchId = UUID.randomUUID();
+        assertFalse(ledger.contains(batchId));
+        ledger.record(batchId);
+        ledger.close();
+
+        ReplayLedger reopened = new ReplayLedger(ledgerFile);
+        try {
+            assertTrue(reopened.contains(batchId));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void batchWithoutIdIsIgnored() {
+        ledger.record(null);
+
+        assertFalse(ledger.contains(null));
+    }
+
+    private static byte[] read(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.tools;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Request received by the {@link StandInApiServer}, as seen on the wire.
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class RecordedRequest {
+    private final String endpoint;
+    private final String method;
+    private final String path;
+    private final String query;
+    private final Map<String, String> headers;
+    private final String body;
+    private final long receivedAt;
+    private volatile int status;
+
+    RecordedRequest(String endpoint, String method, String path, String query, Map<String, String> headers,
+                    String body, long receivedAt) {
+        this.endpoint = endpoint;
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+        this.receivedAt = receivedAt;
+    }
+
+    /**
+     * Get the endpoint the request was routed to (activity, solution, account, health, version, ...).
+     *
+     * @return the endpoint name
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Get a request header, ignoring case.
+     *
+     * @param name the header name
+     * @return the header value, null if not present
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Get the time the request was received, as given by {@link System#nanoTime()}.
+     *
+     * @return the receive time in nanoseconds
+     */
+    public long getReceivedAt() {
+        return receivedAt;
+    }
+
+    /**
+     * Get the status code sent back, 0 if the response was not sent yet.
+     *
+     * @return the response status code
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    void setStatus(int status) {
+        this.status = status;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path + (query != null ? "?" + query : "") + " -> " + status;
+    }
+}
@@ -0,0 +1,688 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.tools;
+
+import com.codealike.client.core.internal.dto.ActivityInfo;
+import com.codealike.client.core.internal.dto.PluginSettingsInfo;
+import com.codealike.client.core.internal.dto.ProfileInfo;
+import com.codealike.client.core.internal.dto.SolutionContextInfo;
+import com.codealike.client.core.internal.dto.UserConfigurationInfo;
+import com.codealike.client.core.internal.dto.Version;
+import com.codealike.client.core.internal.model.TrackActivity;
+import com.codealike.client.core.internal.serialization.CodealikeJson;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Local stand-in for the Codealike API, so {@link com.codealike.client.core.api.ApiClient},
+ * activity flushes and offline replay can be exercised without codealike.com.
+ * <p>
+ * Serves /activity, /solution, /account/{identity}/(authorized|profile|config),
+ * /health, /version and /public/PluginsConfiguration under {@link #BASE_PATH}, and
+ * answers conditional GETs with 304. Faults are injected per request: fixed latency
+ * plus jitter, a rate of 500 and 503 responses, slow (chunked and stalled) response
+ * bodies, a capped upload bandwidth (request bodies are read slowly) and connection refusal (the listening socket is closed until refusal is
+ * turned off). Random draws use a fixed seed so runs can be repeated.
+ * <p>
+ * Every request is recorded with its headers and payload, see {@link #getRecordedRequests()}.
+ * <p>
+ * Usage: java com.codealike.client.tools.StandInApiServer [--port N] [--latency MS] [--jitter MS]
+ * [--error-rate 0..1] [--unavailable-rate 0..1] [--slow-read MS] [--upload-bandwidth BYTES/S] [--seed N]
+ * [--account IDENTITY/TOKEN]
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class StandInApiServer implements Closeable {
+    public static final String BASE_PATH = "/api/v2";
+    public static final String ACTIVITY = "activity";
+    public static final String SOLUTION = "solution";
+    public static final String ACCOUNT = "account";
+    public static final String HEALTH = "health";
+    public static final String VERSION = "version";
+    public static final String PLUGIN_SETTINGS = "public";
+    public static final String UNKNOWN = "unknown";
+
+    private static final String IDENTITY_HEADER = "X-Api-Identity";
+    private static final String TOKEN_HEADER = "X-Api-Token";
+    private static final int HANDLER_THREADS = 16;
+    private static final int READ_CHUNK = 8192;
+    private static final long DEFAULT_SEED = 42;
+
+    private final Object lock = new Object();
+    private HttpServer server;
+    private ExecutorService executor;
+    private int port;
+
+    // fault injection
+    private volatile long latency;
+    private volatile long latencyJitter;
+    private volatile double errorRate;
+    private volatile double unavailableRate;
+    private volatile long slowReadDelay;
+    private volatile long uploadBandwidth;
+    private volatile boolean refuseConnections;
+    private final Object randomLock = new Object();
+    private Random random = new Random(DEFAULT_SEED);
+
+    // canned data
+    private final Map<String, String> accounts = new ConcurrentHashMap<>();
+    private final Map<UUID, SolutionContextInfo> solutions = new ConcurrentHashMap<>();
+    private volatile Version version = new Version(1, 7);
+    private volatile TrackActivity trackActivity = TrackActivity.Always;
+    private volatile PluginSettingsInfo pluginSettings = new PluginSettingsInfo();
+
+    // recorded traffic
+    private final List<RecordedRequest> recorded = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final List<ActivityInfo> activities = new CopyOnWriteArrayList<>();
+    private final Set<UUID> batches = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger duplicateBatches = new AtomicInteger();
+    private final AtomicInteger injectedFaults = new AtomicInteger();
+    private final AtomicLong receivedBytes = new AtomicLong();
+
+    /**
+     * Stand-in server constructor. Use 0 to listen on any free port.
+     *
+     * @param port the local port to listen on
+     */
+    public StandInApiServer(int port) {
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws IOException {
+        StandInApiServer server = new StandInApiServer(0);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port":
+                    server.port = Integer.parseInt(value);
+                    break;
+                case "--latency":
+                    server.setLatency(Long.parseLong(value), server.latencyJitter);
+                    break;
+                case "--jitter":
+                    server.setLatency(server.latency, Long.parseLong(value));
+                    break;
+                case "--error-rate":
+                    server.setErrorRate(Double.parseDouble(value));
+                    break;
+                case "--unavailable-rate":
+                    server.setUnavailableRate(Double.parseDouble(value));
+                    break;
+                case "--slow-read":
+                    server.setSlowReadDelay(Long.parseLong(value));
+                    break;
+                case "--upload-bandwidth":
+                    server.setUploadBandwidth(Long.parseLong(value));
+                    break;
+                case "--seed":
+                    server.setSeed(Long.parseLong(value));
+                    break;
+                case "--account":
+                    String[] split = value.split("/");
+                    server.addAccount(split[0], split[1]);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        server.start();
+        System.out.println("Stand-in Codealike API listening on " + server.getApiUrl());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            System.out.println(server.getRequestCounts());
+        }));
+    }
+
+    /**
+     * Start listening.
+     *
+     * @throws IOException if the port can not be bound
+     */
+    public void start() throws IOException {
+        synchronized (lock) {
+            if (executor == null) {
+                AtomicInteger threadCount = new AtomicInteger();
+                executor = Executors.newFixedThreadPool(HANDLER_THREADS, runnable -> {
+                    Thread thread = new Thread(runnable, "Stand-in API " + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            bind();
+        }
+    }
+
+    /**
+     * Stop listening and release the handler threads.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            unbind();
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Get the API url to give to the client, e.g. http://127.0.0.1:port/api/v2.
+     *
+     * @return the API url
+     */
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + port + BASE_PATH;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Delay every response.
+     *
+     * @param latency the fixed delay (in milliseconds)
+     * @param jitter  the maximum random delay added on top (in milliseconds)
+     */
+    public void setLatency(long latency, long jitter) {
+        this.latency = latency;
+        this.latencyJitter = jitter;
+    }
+
+    /**
+     * Answer a fraction of the requests with 500 Internal Server Error.
+     *
+     * @param errorRate the fraction of requests, from 0 to 1
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Answer a fraction of the requests with 503 Service Unavailable.
+     *
+     * @param unavailableRate the fraction of requests, from 0 to 1
+     */
+    public void setUnavailableRate(double unavailableRate) {
+        this.unavailableRate = unavailableRate;
+    }
+
+    /**
+     * Stall response bodies: half the body is sent, then the rest after the given delay.
+     *
+     * @param slowReadDelay the stall (in milliseconds), 0 to disable
+     */
+    public void setSlowReadDelay(long slowReadDelay) {
+        this.slowReadDelay = slowReadDelay;
+    }
+
+    /**
+     * Cap the upload bandwidth of every request: request bodies are read at most
+     * this fast, like over a slow link.
+     *
+     * @param uploadBandwidth the bandwidth (in bytes per second), 0 to disable
+     */
+    public void setUploadBandwidth(long uploadBandwidth) {
+        this.uploadBandwidth = uploadBandwidth;
+    }
+
+    /**
+     * Refuse connections. The listening socket is closed, so clients get a connection
+     * refused error, and bound again on the same port when refusal is turned off.
+     *
+     * @param refuseConnections true to refuse connections, false to accept them again
+     * @throws IOException if the port can not be bound again
+     */
+    public void setRefuseConnections(boolean refuseConnections) throws IOException {
+        synchronized (lock) {
+            this.refuseConnections = refuseConnections;
+            if (refuseConnections) {
+                unbind();
+            } else if (executor != null) {
+                bind();
+            }
+        }
+    }
+
+    public boolean isRefusingConnections() {
+        return refuseConnections;
+    }
+
+    /**
+     * Restart the random sequence used for latency jitter and injected errors.
+     *
+     * @param seed the random seed
+     */
+    public void setSeed(long seed) {
+        synchronized (randomLock) {
+            random = new Random(seed);
+        }
+    }
+
+    /**
+     * Accept the given credentials. Until an account is added any credentials are accepted.
+     *
+     * @param identity the user identity
+     * @param token    the user token
+     */
+    public void addAccount(String identity, String token) {
+        accounts.put(identity, token);
+    }
+
+    /**
+     * Register a solution, as if it had been posted by another client.
+     *
+     * @param solution the solution context
+     */
+    public void addSolution(SolutionContextInfo solution) {
+        solutions.put(solution.getSolutionId(), solution);
+    }
+
+    public void setVersion(Version version) {
+        this.version = version;
+    }
+
+    public void setTrackActivity(TrackActivity trackActivity) {
+        this.trackActivity = trackActivity;
+    }
+
+    public void setPluginSettings(PluginSettingsInfo pluginSettings) {
+        this.pluginSettings = pluginSettings;
+    }
+
+    /**
+     * Get every request received since start or the last {@link #reset()}, in arrival order.
+     *
+     * @return the recorded requests
+     */
+    public List<RecordedRequest> getRecordedRequests() {
+        return new ArrayList<>(recorded);
+    }
+
+    /**
+     * Get the requests received by an endpoint.
+     *
+     * @param endpoint the endpoint name, e.g. {@link #ACTIVITY}
+     * @return the recorded requests
+     */
+    public List<RecordedRequest> getRecordedRequests(String endpoint) {
+        return recorded.stream().filter(request -> request.getEndpoint().equals(endpoint)).collect(Collectors.toList());
+    }
+
+    public int getRequestCount(String endpoint) {
+        AtomicInteger count = hits.get(endpoint);
+        return count != null ? count.get() : 0;
+    }
+
+    public Map<String, Integer> getRequestCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        hits.forEach((endpoint, count) -> counts.put(endpoint, count.get()));
+        return counts;
+    }
+
+    /**
+     * Get the activity batches accepted, duplicates included.
+     *
+     * @return the posted activity
+     */
+    public List<ActivityInfo> getReceivedActivities() {
+        return new ArrayList<>(activities);
+    }
+
+    /**
+     * Get the number of activity batches posted more than once.
+     *
+     * @return the number of duplicate batches
+     */
+    public int getDuplicateBatches() {
+        return duplicateBatches.get();
+    }
+
+    /**
+     * Get the number of requests answered with an injected 500 or 503.
+     *
+     * @return the number of injected faults
+     */
+    public int getInjectedFaults() {
+        return injectedFaults.get();
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes.get();
+    }
+
+    /**
+     * Forget recorded traffic. Accounts, solutions and fault settings are kept.
+     */
+    public void reset() {
+        recorded.clear();
+        hits.clear();
+        activities.clear();
+        batches.clear();
+        duplicateBatches.set(0);
+        injectedFaults.set(0);
+        receivedBytes.set(0);
+    }
+
+    private void bind() throws IOException {
+        if (server != null || refuseConnections) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        // keep the port so a refusal period does not move the server
+        port = server.getAddress().getPort();
+    }
+
+    private void unbind() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] requestBody;
+            try (InputStream stream = exchange.getRequestBody()) {
+                requestBody = read(stream);
+            }
+            receivedBytes.addAndGet(requestBody.length);
+
+            String path = exchange.getRequestURI().getPath();
+            String[] segments = segments(path);
+            String endpoint = segments.length > 0 ? segments[0] : UNKNOWN;
+            if (!isKnownEndpoint(endpoint)) {
+                endpoint = UNKNOWN;
+            }
+
+            Map<String, String> headers = new HashMap<>();
+            exchange.getRequestHeaders().forEach((name, values) -> headers.put(name, String.join(",", values)));
+            RecordedRequest request = new RecordedRequest(endpoint, exchange.getRequestMethod(), path,
+                    exchange.getRequestURI().getRawQuery(), headers, new String(requestBody, StandardCharsets.UTF_8),
+                    System.nanoTime());
+            recorded.add(request);
+            hits.computeIfAbsent(endpoint, key -> new AtomicInteger()).incrementAndGet();
+
+            double draw;
+            long delay;
+            synchronized (randomLock) {
+                draw = random.nextDouble();
+                delay = latency + (latencyJitter > 0 ? (long) (random.nextDouble() * latencyJitter) : 0);
+            }
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+
+            Response response;
+            if (draw < errorRate) {
+                injectedFaults.incrementAndGet();
+                response = new Response(500, null);
+            } else if (draw < errorRate + unavailableRate) {
+                injectedFaults.incrementAndGet();
+                response = new Response(503, null);
+            } else {
+                response = route(request, segments);
+            }
+
+            request.setStatus(send(exchange, request, response));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /*
+     *  route:
+     *  Answers the request the way the Codealike API does. Paths are
+     *  relative to the base path, e.g. account/{identity}/profile.
+     */
+    private Response route(RecordedRequest request, String[] segments) throws JsonProcessingException {
+        String method = request.getMethod();
+        switch (request.getEndpoint()) {
+            case HEALTH:
+                return new Response(200, null);
+            case VERSION:
+                return get(method, version);
+            case PLUGIN_SETTINGS:
+                // served as a json encoded string, like the real endpoint
+                String settings = CodealikeJson.getMapper().writeValueAsString(pluginSettings);
+                return "GET".equals(method)
+                        ? new Response(200, CodealikeJson.getMapper().writeValueAsString(settings))
+                        : new Response(405, null);
+            case ACCOUNT:
+                return account(request, segments);
+            case SOLUTION:
+                return solution(request, segments);
+            case ACTIVITY:
+                return activity(request);
+            default:
+                return new Response(404, null);
+        }
+    }
+
+    private Response account(RecordedRequest request, String[] segments) throws JsonProcessingException {
+        if (segments.length != 3 || !"GET".equals(request.getMethod())) {
+            return new Response(404, null);
+        }
+        String identity = segments[1];
+        if (!isAuthorized(request) || !identity.equalsIgnoreCase(request.getHeader(IDENTITY_HEADER))) {
+            return new Response(401, null);
+        }
+        switch (segments[2]) {
+            case "authorized":
+                return new Response(200, null);
+            case "profile":
+                ProfileInfo profile = new ProfileInfo();
+                profile.setIdentity(identity);
+                profile.setDisplayName(identity);
+                profile.setFullName(identity);
+                return get(request.getMethod(), profile);
+            case "config":
+                UserConfigurationInfo configuration = new UserConfigurationInfo();
+                configuration.setTrackActivities(trackActivity);
+                return get(request.getMethod(), configuration);
+            default:
+                return new Response(404, null);
+        }
+    }
+
+    private Response solution(RecordedRequest request, String[] segments) throws JsonProcessingException {
+        if (!isAuthorized(request)) {
+            return new Response(401, null);
+        }
+        if ("GET".equals(request.getMethod()) && segments.length == 2) {
+            SolutionContextInfo solution;
+            try {
+                solution = solutions.get(UUID.fromString(segments[1]));
+            } catch (IllegalArgumentException e) {
+                return new Response(400, null);
+            }
+            return solution != null ? get(request.getMethod(), solution) : new Response(404, null);
+        }
+        if ("POST".equals(request.getMethod()) && segments.length == 1) {
+            SolutionContextInfo solution;
+            try {
+                solution = CodealikeJson.getMapper().readValue(request.getBody(), SolutionContextInfo.class);
+            } catch (IOException e) {
+                return new Response(400, null);
+            }
+            if (solution.getSolutionId() == null) {
+                return new Response(400, null);
+            }
+            // an existing id is a collision, the client retries with a new one
+            return solutions.putIfAbsent(solution.getSolutionId(), solution) == null
+                    ? new Response(200, null) : new Response(409, null);
+        }
+        return new Response(404, null);
+    }
+
+    private Response activity(RecordedRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return new Response(405, null);
+        }
+        if (!isAuthorized(request)) {
+            return new Response(401, null);
+        }
+        ActivityInfo activityInfo;
+        try {
+            activityInfo = CodealikeJson.getMapper().readValue(request.getBody(), ActivityInfo.class);
+        } catch (IOException e) {
+            return new Response(400, null);
+        }
+        activities.add(activityInfo);
+        if (activityInfo.getBatchId() != null && !batches.add(activityInfo.getBatchId())) {
+            duplicateBatches.incrementAndGet();
+        }
+        return new Response(200, null);
+    }
+
+    private Response get(String method, Object entity) throws JsonProcessingException {
+        if (!"GET".equals(method)) {
+            return new Response(405, null);
+        }
+        return new Response(200, CodealikeJson.getMapper().writeValueAsString(entity));
+    }
+
+    private boolean isAuthorized(RecordedRequest request) {
+        if (accounts.isEmpty()) {
+            return true;
+        }
+        String identity = request.getHeader(IDENTITY_HEADER);
+        String token = identity != null ? accounts.get(identity) : null;
+        return token != null && token.equals(request.getHeader(TOKEN_HEADER));
+    }
+
+    /*
+     *  send:
+     *  Writes the response. GETs with a body carry an ETag and are answered
+     *  with 304 when the client already has it. With a slow read delay the
+     *  body is chunked and stalls half way.
+     */
+    private int send(HttpExchange exchange, RecordedRequest request, Response response) throws IOException, InterruptedException {
+        int status = response.status;
+        byte[] body = response.body != null ? response.body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+        if (status == 200 && body.length > 0 && "GET".equals(request.getMethod())) {
+            String etag = "\"" + Integer.toHexString(response.body.hashCode()) + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(request.getHeader("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return 304;
+            }
+        }
+        if (body.length > 0) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+        }
+
+        long stall = slowReadDelay;
+        if (stall <= 0) {
+            exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+            if (body.length > 0) {
+                try (OutputStream stream = exchange.getResponseBody()) {
+                    stream.write(body);
+                }
+            }
+            return status;
+        }
+
+        // chunked, so the client can not tell the body is complete before the stall ends
+        exchange.sendResponseHeaders(status, 0);
+        try (OutputStream stream = exchange.getResponseBody()) {
+            int half = body.length / 2;
+            stream.write(body, 0, half);
+            stream.flush();
+            TimeUnit.MILLISECONDS.sleep(stall);
+            stream.write(body, half, body.length - half);
+        }
+        return status;
+    }
+
+    /*
+     *  read:
+     *  Reads a request body, throttled to the upload bandwidth if any.
+     */
+    private byte[] read(InputStream stream) throws IOException, InterruptedException {
+        long bandwidth = uploadBandwidth;
+        if (bandwidth <= 0) {
+            return stream.readAllBytes();
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] chunk = new byte[READ_CHUNK];
+        long start = System.nanoTime();
+        int read;
+        while ((read = stream.read(chunk)) >= 0) {
+            body.write(chunk, 0, read);
+            long due = TimeUnit.SECONDS.toNanos(body.size()) / bandwidth;
+            long ahead = due - (System.nanoTime() - start);
+            if (ahead > 0) {
+                TimeUnit.NANOSECONDS.sleep(ahead);
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private static String[] segments(String path) {
+        String relative = path.startsWith(BASE_PATH) ? path.substring(BASE_PATH.length()) : path;
+        return relative.chars().allMatch(c -> c == '/') ? new String[0] : relative.replaceAll("^/+|/+$", "").split("/+");
+    }
+
+    private static boolean isKnownEndpoint(String endpoint) {
+        switch (endpoint) {
+            case ACTIVITY:
+            case SOLUTION:
+            case ACCOUNT:
+            case HEALTH:
+            case VERSION:
+            case PLUGIN_SETTINGS:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
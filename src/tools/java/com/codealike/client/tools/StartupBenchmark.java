@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.tools;
+
+import com.codealike.client.core.api.ApiClient;
+import com.codealike.client.core.api.ApiResponse;
+import com.codealike.client.core.internal.dto.ProfileInfo;
+import com.codealike.client.core.internal.dto.UserConfigurationInfo;
+import com.codealike.client.core.internal.dto.Version;
+import com.codealike.client.core.internal.model.GlobalSettings;
+import com.codealike.client.core.internal.model.ProjectSettings;
+import com.codealike.client.core.internal.model.SessionSnapshot;
+import com.codealike.client.core.internal.services.ProjectRegistrationQueue;
+import com.codealike.client.core.internal.startup.PluginContext;
+import com.codealike.client.core.internal.startup.StartupPipeline;
+import com.codealike.client.core.internal.utils.Configuration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Headless benchmark of the plugin startup against the {@link StandInApiServer}.
+ * <p>
+ * Each run boots the IntelliJ-free part of the plugin startup the way the plugin
+ * does, with the same {@link StartupPipeline} phases: properties, configuration
+ * (global and plugin settings, transport selection), the stored session snapshot,
+ * the version check and the login running together, and the project ids of the
+ * opened projects. The transport is closed between runs, so every run creates
+ * it again as the IDE does.
+ * <p>
+ * The first run of a JVM also pays for class loading and is reported as the cold
+ * start; the other runs give the median, 90th percentile and maximum per phase.
+ * Compare transports in separate JVMs to compare their cold starts.
+ * <p>
+ * Settings are written to a temporary user home, the real codealike folder is not
+ * touched. Project registrations are queued but not sent, they are not part of
+ * startup.
+ * <p>
+ * Usage: java com.codealike.client.tools.StartupBenchmark [--runs N] [--latency MS] [--jitter MS]
+ * [--transport jersey,http2] [--projects N]
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class StartupBenchmark {
+    private static final String IDENTITY = "benchmark";
+    private static final String TOKEN = "benchmark-token";
+    private static final String TOTAL = "total";
+
+    private final StandInApiServer server;
+    private final File home;
+    private final int projects;
+
+    /**
+     * Benchmark constructor.
+     *
+     * @param server   the stand-in API, already started
+     * @param home     the user home used for settings
+     * @param projects the number of opened projects
+     */
+    public StartupBenchmark(StandInApiServer server, File home, int projects) {
+        this.server = server;
+        this.home = home;
+        this.projects = projects;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 10;
+        int projects = 3;
+        long latency = 50;
+        long jitter = 0;
+        List<String> transports = Collections.singletonList(ApiClient.JERSEY_TRANSPORT);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--runs":
+                    runs = Math.max(2, Integer.parseInt(value));
+                    break;
+                case "--projects":
+                    projects = Integer.parseInt(value);
+                    break;
+                case "--latency":
+                    latency = Long.parseLong(value);
+                    break;
+                case "--jitter":
+                    jitter = Long.parseLong(value);
+                    break;
+                case "--transport":
+                    transports = Arrays.asList(value.split(","));
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        File home = Files.createTempDirectory("codealike-benchmark").toFile();
+        System.setProperty("user.home", home.getAbsolutePath());
+
+        StandInApiServer server = new StandInApiServer(0);
+        server.addAccount(IDENTITY, TOKEN);
+        server.setLatency(latency, jitter);
+        server.start();
+        try {
+            StartupBenchmark benchmark = new StartupBenchmark(server, home, projects);
+            for (String transport : transports) {
+                System.out.println(String.format("Transport %s, latency %d+%d ms, %d projects, %d runs",
+                        transport, latency, jitter, projects, runs));
+                System.out.println(benchmark.report(benchmark.run(transport, runs)));
+            }
+        } finally {
+            server.close();
+            ApiClient.closeTransport();
+        }
+        // the local I/O executor and the connectivity monitor may still hold threads
+        System.exit(0);
+    }
+
+    /**
+     * Boot the plugin startup several times.
+     *
+     * @param transport the API transport name
+     * @param runs      the number of runs
+     * @return the phase durations of every run (in milliseconds)
+     * @throws IOException if settings can not be written
+     */
+    public List<Map<String, Double>> run(String transport, int runs) throws IOException {
+        writeGlobalSettings(transport);
+        List<Map<String, Double>> results = new ArrayList<>(runs);
+        for (int run = 1; run <= runs; run++) {
+            ApiClient.closeTransport();
+            ApiClient.getResponseCache().clear();
+            results.add(boot(run));
+        }
+        return results;
+    }
+
+    /*
+     *  boot:
+     *  One startup, with the phases of the plugin startup. The version check
+     *  and the login are in flight while project ids are read, as when the IDE
+     *  opens projects during the login.
+     */
+    private Map<String, Double> boot(int run) {
+        StartupPipeline startup = new StartupPipeline(false);
+
+        startup.measure("properties", StartupBenchmark::loadPluginProperties);
+        Configuration configuration = startup.measure("configuration", () -> {
+            Configuration loaded = new Configuration("idea", PluginContext.VERSION, String.valueOf(run));
+            loaded.loadGlobalSettings();
+            ApiClient.selectTransport(loaded.getHttpTransport());
+            loaded.loadStoredPluginSettings();
+            return loaded;
+        });
+        startup.measure("provisional session", () -> configuration.getSessionStore().load(IDENTITY, TOKEN));
+
+        ApiClient client;
+        try {
+            client = ApiClient.tryCreateNew(configuration.getApiUrl(), IDENTITY, TOKEN);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create API client.", e);
+        }
+        CompletableFuture<ApiResponse<Version>> version = startup.phase("version", client::versionAsync);
+        CompletableFuture<Boolean> login = startup.phase("login", () -> login(client, configuration));
+
+        ProjectRegistrationQueue queue = new ProjectRegistrationQueue(configuration.getRegistrationQueueFile(),
+                settings -> CompletableFuture.completedFuture(false), () -> false);
+        startup.measure("project ids", () -> {
+            for (int project = 1; project <= projects; project++) {
+                loadOrCreateProjectId(configuration, queue, project);
+            }
+            return null;
+        });
+
+        startup.completion().join();
+        queue.close();
+        if (!version.join().success() || !login.join()) {
+            System.err.println(String.format("Run %d: version %s, login %s", run,
+                    version.join().getStatus(), login.join() ? "ok" : "failed"));
+        }
+
+        Map<String, Double> durations = startup.getDurations();
+        durations.put(TOTAL, (double) startup.elapsed());
+        return durations;
+    }
+
+    /*
+     *  login:
+     *  Authenticates, then fetches profile and configuration together and
+     *  stores the session snapshot, like the plugin login.
+     */
+    private CompletableFuture<Boolean> login(ApiClient client, Configuration configuration) {
+        return client.tokenAuthenticateAsync().thenCompose(response -> {
+            if (!response.success()) {
+                return CompletableFuture.completedFuture(false);
+            }
+            CompletableFuture<ApiResponse<ProfileInfo>> profile = client.getProfileAsync(IDENTITY);
+            CompletableFuture<ApiResponse<UserConfigurationInfo>> userConfiguration = client.getUserConfigurationAsync(IDENTITY);
+            return profile.thenCombine(userConfiguration, (profileResponse, configurationResponse) -> {
+                if (!profileResponse.success() || !configurationResponse.success()) {
+                    return false;
+                }
+                configuration.getSessionStore().save(new SessionSnapshot(IDENTITY, profileResponse.getObject(),
+                        configurationResponse.getObject().getTrackActivities(), configuration.getPluginSettings()), TOKEN);
+                return true;
+            });
+        });
+    }
+
+    /*
+     *  loadOrCreateProjectId:
+     *  Reads the project id from codealike.json, creating and queuing a new
+     *  one the first time, like the plugin does for an opened project.
+     */
+    private void loadOrCreateProjectId(Configuration configuration, ProjectRegistrationQueue queue, int project) {
+        File folder = new File(home, "projects/project-" + project);
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IllegalStateException("Could not create project folder " + folder);
+        }
+        ProjectSettings settings = configuration.loadProjectSettings(folder.getPath());
+        if (settings.getProjectId() == null) {
+            settings.setProjectId(UUID.randomUUID());
+            settings.setProjectName(folder.getName());
+            queue.enqueue(settings.getProjectId(), settings.getProjectName());
+            configuration.saveProjectSettings(folder.getPath(), settings);
+        }
+    }
+
+    private void writeGlobalSettings(String transport) throws IOException {
+        File codealikeFolder = Configuration.getDefaultBasePath();
+        if (!codealikeFolder.exists() && !codealikeFolder.mkdirs()) {
+            throw new IOException("Could not create " + codealikeFolder);
+        }
+        GlobalSettings settings = new GlobalSettings();
+        settings.setUserToken(IDENTITY + "/" + TOKEN);
+        settings.setApiUrl(server.getApiUrl());
+        settings.setHttpTransport(transport);
+        new ObjectMapper().writeValue(new File(codealikeFolder, Configuration.GLOBAL_SETTINGS_FILE), settings);
+    }
+
+    /*
+     *  report:
+     *  One line per phase: the first run (cold start), then the median,
+     *  90th percentile and maximum of the other runs.
+     */
+    private String report(List<Map<String, Double>> results) {
+        Map<String, List<Double>> warm = new LinkedHashMap<>();
+        for (Map<String, Double> result : results.subList(1, results.size())) {
+            result.forEach((phase, duration) -> warm.computeIfAbsent(phase, key -> new ArrayList<>()).add(duration));
+        }
+
+        StringBuilder report = new StringBuilder(String.format("%-20s %10s %10s %10s %10s%n", "phase (ms)", "cold", "median", "p90", "max"));
+        Map<String, Double> cold = results.get(0);
+        for (Map.Entry<String, List<Double>> phase : warm.entrySet()) {
+            List<Double> durations = phase.getValue();
+            Collections.sort(durations);
+            report.append(String.format("%-20s %10.1f %10.1f %10.1f %10.1f%n", phase.getKey(),
+                    cold.getOrDefault(phase.getKey(), Double.NaN), percentile(durations, 0.5),
+                    percentile(durations, 0.9), durations.get(durations.size() - 1)));
+        }
+        return report.toString();
+    }
+
+    private static double percentile(List<Double> sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    private static Properties loadPluginProperties() {
+        Properties properties = new Properties();
+        try (InputStream in = StartupBenchmark.class.getResourceAsStream("/codealike.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load plugin properties.", e);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2023. All rights reserved to Torc LLC.
+ */
+package com.codealike.client.tools;
+
+import com.codealike.client.core.api.ApiClient;
+import com.codealike.client.core.api.ApiResponse;
+import com.codealike.client.core.api.RetryPolicy;
+import com.codealike.client.core.internal.dto.ActivityEntryInfo;
+import com.codealike.client.core.internal.dto.ActivityInfo;
+import com.codealike.client.core.internal.dto.ActivityType;
+import com.codealike.client.core.internal.dto.CodeContextInfo;
+import com.codealike.client.core.internal.dto.ProjectContextInfo;
+import com.codealike.client.core.internal.serialization.CodealikeJson;
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless benchmark of concurrent activity uploads against the {@link StandInApiServer},
+ * to compare the API transports.
+ * <p>
+ * Each transport posts the same number of activity batches of about the given size,
+ * from as many threads as the given concurrency, after a warm-up request that opens
+ * the first connection, and reports the upload rate and the upload durations (in
+ * milliseconds). Retries are disabled so every failure is counted. The
+ * stand-in server can cap the upload bandwidth of every request, e.g. to check
+ * uploads longer than the transport read timeout still succeed.
+ * <p>
+ * The stand-in server speaks HTTP/1.1 in clear text, so the HTTP/2 transport falls
+ * back to HTTP/1.1: this compares the clients and their connection handling, not
+ * multiplexing.
+ * <p>
+ * Usage: java com.codealike.client.tools.UploadBenchmark [--uploads N] [--concurrency N] [--size KIB]
+ * [--latency MS] [--upload-bandwidth BYTES/S] [--transport jersey,http2]
+ *
+ * @author Daniel, pvmagacho
+ * @version 1.6.0.0
+ */
+public class UploadBenchmark {
+    private static final String IDENTITY = "benchmark";
+    private static final String TOKEN = "benchmark-token";
+
+    private final StandInApiServer server;
+    private final int uploads;
+    private final int concurrency;
+    private final int size;
+
+    /**
+     * Benchmark constructor.
+     *
+     * @param server      the stand-in API, already started
+     * @param uploads     the number of batches posted per transport
+     * @param concurrency the number of concurrent uploads
+     * @param size        the approximate size of a batch (in bytes)
+     */
+    public UploadBenchmark(StandInApiServer server, int uploads, int concurrency, int size) {
+        this.server = server;
+        this.uploads = uploads;
+        this.concurrency = concurrency;
+        this.size = size;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int uploads = 64;
+        int concurrency = 4;
+        int size = 256 * 1024;
+        long latency = 20;
+        long bandwidth = 0;
+        List<String> transports = Arrays.asList(ApiClient.JERSEY_TRANSPORT, ApiClient.HTTP2_TRANSPORT);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--uploads":
+                    uploads = Integer.parseInt(value);
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(value);
+                    break;
+                case "--size":
+                    size = Integer.parseInt(value) * 1024;
+                    break;
+                case "--latency":
+                    latency = Long.parseLong(value);
+                    break;
+                case "--upload-bandwidth":
+                    bandwidth = Long.parseLong(value);
+                    break;
+                case "--transport":
+                    transports = Arrays.asList(value.split(","));
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        StandInApiServer server = new StandInApiServer(0);
+        server.addAccount(IDENTITY, TOKEN);
+        server.setLatency(latency, 0);
+        server.setUploadBandwidth(bandwidth);
+        server.start();
+        try {
+            UploadBenchmark benchmark = new UploadBenchmark(server, uploads, concurrency, size);
+            System.out.println(String.format("%d uploads of %d KiB, %d concurrent, latency %d ms, upload bandwidth %s",
+                    uploads, size / 1024, concurrency, latency, bandwidth > 0 ? bandwidth + " B/s" : "unlimited"));
+            System.out.println(String.format("%-10s %8s %8s %10s %10s %10s %10s %10s %10s",
+                    "transport", "ok", "failed", "wall (s)", "batch/s", "MiB/s", "median", "p90", "max"));
+            for (String transport : transports) {
+                System.out.println(benchmark.run(transport));
+            }
+        } finally {
+            server.close();
+            ApiClient.closeTransport();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Post the batches with the given transport.
+     *
+     * @param transport the API transport name
+     * @return one report line
+     * @throws Exception if the client can not be created or an upload thread fails
+     */
+    public String run(String transport) throws Exception {
+        ApiClient.closeTransport();
+        ApiClient.selectTransport(transport);
+        // the breaker and the connectivity state are shared, failures of a transport must not short-circuit the next
+        ApiClient.getCircuitBreaker().record(ApiResponse.Status.Ok);
+        ApiClient.getConnectivity().record(ApiResponse.Status.Ok, 0);
+        ApiClient client = ApiClient.tryCreateNew(server.getApiUrl(), IDENTITY, TOKEN).withRetryPolicy(RetryPolicy.NONE);
+        // warm up, class loading and the first connection are not part of the run
+        client.version();
+        server.reset();
+
+        List<ActivityInfo> batches = new ArrayList<>(uploads);
+        for (int i = 0; i < uploads; i++) {
+            batches.add(createBatch());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<Double>> results = new ArrayList<>(uploads);
+        long start = System.nanoTime();
+        for (ActivityInfo batch : batches) {
+            results.add(executor.submit(() -> {
+                long sent = System.nanoTime();
+                ApiResponse<Void> response = client.postActivityInfo(batch);
+                return response.success() ? (System.nanoTime() - sent) / 1e6 : Double.NaN;
+            }));
+        }
+        List<Double> durations = new ArrayList<>(uploads);
+        int failed = 0;
+        for (Future<Double> result : results) {
+            double duration = result.get();
+            if (Double.isNaN(duration)) {
+                failed++;
+            } else {
+                durations.add(duration);
+            }
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        Collections.sort(durations);
+        return String.format("%-10s %8d %8d %10.2f %10.1f %10.2f %10.0f %10.0f %10.0f", transport, durations.size(),
+                failed, wall, durations.size() / wall, server.getReceivedBytes() / wall / (1024 * 1024),
+                percentile(durations, 0.5), percentile(durations, 0.9), percentile(durations, 1));
+    }
+
+    /*
+     *  createBatch:
+     *  An activity batch of about the benchmark size, made of edit events.
+     */
+    private ActivityInfo createBatch() throws Exception {
+        UUID projectId = UUID.randomUUID();
+        DateTime end = DateTime.now();
+        ActivityInfo batch = new ActivityInfo("benchmark", projectId, UUID.randomUUID(), end.minusHours(1), end);
+        batch.setProjects(Collections.singletonList(new ProjectContextInfo(projectId, "benchmark")));
+        batch.setStates(new ArrayList<>());
+
+        ActivityEntryInfo sample = createEntry(projectId, end);
+        int entrySize = CodealikeJson.getMapper().writeValueAsBytes(sample).length + 1;
+        List<ActivityEntryInfo> events = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, size / entrySize); i++) {
+            events.add(createEntry(projectId, end.minusSeconds(i)));
+        }
+        batch.setEvents(events);
+        return batch;
+    }
+
+    private static ActivityEntryInfo createEntry(UUID projectId, DateTime end) {
+        CodeContextInfo context = new CodeContextInfo(projectId);
+        context.setFile("src/main/java/com/example/benchmark/Benchmark.java");
+        context.setNamespace("com.example.benchmark");
+        context.setClass("Benchmark");
+        context.setMember("run");
+
+        ActivityEntryInfo entry = new ActivityEntryInfo(UUID.randomUUID());
+        entry.setType(ActivityType.DocumentEdit);
+        entry.setContext(context);
+        entry.setStart(end.minusSeconds(1));
+        entry.setEnd(end);
+        entry.setDuration(Period.seconds(1));
+        return entry;
+    }
+
+    private static double percentile(List<Double> sorted, double fraction) {
+        if (sorted.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(fraction * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+}